@@ -19,12 +19,18 @@ public class QStoreHistory extends EntityPathBase<StoreHistory> {
 
     public static final QStoreHistory storeHistory = new QStoreHistory("storeHistory");
 
+    public final ArrayPath<byte[], Byte> compactNames = createArray("compactNames", byte[].class);
+
     public final StringPath employeeNames = createString("employeeNames");
 
     public final NumberPath<Long> id = createNumber("id", Long.class);
 
     public final StringPath productNames = createString("productNames");
 
+    public final DatePath<java.time.LocalDate> snapshotDate = createDate("snapshotDate", java.time.LocalDate.class);
+
+    public final NumberPath<Long> storeId = createNumber("storeId", Long.class);
+
     public final StringPath storeName = createString("storeName");
 
     public QStoreHistory(String variable) {
@@ -0,0 +1,234 @@
+package seol.study.springbatch.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.batch.item.database.AbstractPagingItemReader;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * EntityManager 를 직접 열어서 페이징 조회하는 Reader 들의 공통 부모. <br/>
+ * - EntityManager 생성/종료, transacted 옵션 <br/>
+ * - 페이지 버퍼: pageSize 크기로 한번 만들어 open 동안 재사용한다 (row 마다 배열을 복사하지 않는다) <br/>
+ * - 페이지 조회 시간/할당량 측정 ({@link #getPageReadMetrics()}) <br/>
+ * - 멀티 스레드 Step: read() 는 synchronized 이고, 상태는 인스턴스 필드에만 둔다 (saveState 는 false 로 사용) <br/>
+ * - processor 가 lazy 컬렉션을 읽는다면 {@link #setCollectionPreloader(CollectionPreloader)} 로 페이지를 채울 때 미리 초기화한다 <br/>
+ * - readFromReplica 옵션을 켜면 페이지 조회 커넥션을 replica 에서 얻는다 ({@link ReadWriteRoutingDataSource}) <br/>
+ * - readOnly 옵션을 켜면 EntityManager 를 조회 전용으로 연다 ({@link ReadOnlySessions})
+ */
+@Slf4j
+public abstract class AbstractJpaPagingItemReader<T> extends AbstractPagingItemReader<T> {
+
+    private static final String SHARED_CACHE_RETRIEVE_MODE = "javax.persistence.cache.retrieveMode";
+    private static final String SHARED_CACHE_STORE_MODE = "javax.persistence.cache.storeMode";
+
+    protected final Map<String, Object> jpaPropertyMap = new HashMap<>();
+    protected EntityManagerFactory entityManagerFactory;
+    protected boolean transacted = true; // default value
+    protected boolean readFromReplica = false;
+    protected boolean readOnly = false;
+
+    private EntityManager entityManager;
+    private CollectionPreloader<T> collectionPreloader;
+    private ArrayList<T> pageBuffer;
+    private final PageReadMetrics pageReadMetrics = new PageReadMetrics();
+
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void setTransacted(boolean transacted) {
+        this.transacted = transacted;
+    }
+
+    /**
+     * 이 Reader 의 EntityManager 가 2차 캐시를 쓸지 정한다. (hibernate.cache.use_second_level_cache 가 켜져 있을 때만 의미가 있다) <br/>
+     * false 면 캐시를 조회하지도, 채우지도 않는다. (CacheRetrieveMode/CacheStoreMode.BYPASS) 한번만 읽는 대량 조회가 캐시를 밀어내지 않게 할 때 사용한다.
+     */
+    public void setUseSecondLevelCache(boolean useSecondLevelCache) {
+        jpaPropertyMap.put(SHARED_CACHE_RETRIEVE_MODE, useSecondLevelCache ? CacheRetrieveMode.USE : CacheRetrieveMode.BYPASS);
+        jpaPropertyMap.put(SHARED_CACHE_STORE_MODE, useSecondLevelCache ? CacheStoreMode.USE : CacheStoreMode.BYPASS);
+    }
+
+    /**
+     * 페이지를 results 에 담기 전에(detach 전에) 페이지 엔티티들의 lazy 컬렉션을 IN 쿼리로 한번에 초기화한다.
+     */
+    public void setCollectionPreloader(CollectionPreloader<T> collectionPreloader) {
+        this.collectionPreloader = collectionPreloader;
+    }
+
+    /**
+     * 페이지 조회를 replica 로 보낸다. (ReadWriteRoutingDataSource 가 없으면 아무 영향이 없다) <br/>
+     * 커넥션은 EntityManager 가 처음 쿼리할 때 얻으므로, 같은 Step 에서 방금 쓴 데이터는 replica 지연만큼 늦게 보일 수 있다.
+     */
+    public void setReadFromReplica(boolean readFromReplica) {
+        this.readFromReplica = readFromReplica;
+    }
+
+    /**
+     * 조회 전용 옵션 <br/>
+     * - Reader 가 여는 EntityManager(prefetch 페이지용 포함)를 FlushMode.MANUAL + defaultReadOnly 로 열고, JDBC 커넥션도 read-only 로 표시한다 <br/>
+     * - 페이지 조회 쿼리에 org.hibernate.readOnly 힌트를 준다 <br/>
+     * - 엔티티마다 스냅샷을 들고 있지 않으므로 페이지당 힙 사용량이 줄고, 페이지 조회 전 flush(dirty checking)가 없다 <br/>
+     * 읽은 엔티티를 수정해도 반영되지 않는다. processor 가 Reader 의 영속성 컨텍스트로 엔티티를 수정한다면 사용하지 않는다.
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public PageReadMetrics getPageReadMetrics() {
+        return pageReadMetrics;
+    }
+
+    protected EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    /**
+     * 현재 페이지의 엔티티를 관리하는 EntityManager 를 바꾼다. 이전 EntityManager 는 닫는다.
+     */
+    protected void replaceEntityManager(EntityManager newEntityManager) {
+        EntityManager previous = swapEntityManager(newEntityManager);
+        if (previous != null && previous.isOpen()) {
+            previous.close();
+        }
+    }
+
+    /**
+     * 현재 EntityManager 를 바꾸고, 이전 EntityManager 를 닫지 않고 돌려준다. (같은 EntityManager 이거나 없으면 null)
+     */
+    protected EntityManager swapEntityManager(EntityManager newEntityManager) {
+        EntityManager previous = entityManager;
+        entityManager = newEntityManager;
+        return previous == newEntityManager ? null : previous;
+    }
+
+    @Override
+    public synchronized T read() throws Exception {
+        return super.read();
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        super.doOpen();
+
+        replaceEntityManager(createEntityManager());
+    }
+
+    /**
+     * Reader 설정(jpaPropertyMap, readOnly)을 적용한 EntityManager 를 연다.
+     */
+    protected EntityManager createEntityManager() {
+        EntityManager newEntityManager = entityManagerFactory.createEntityManager(jpaPropertyMap);
+        if (newEntityManager == null) {
+            throw new DataAccessResourceFailureException("Unable to obtain an EntityManager");
+        }
+        if (readOnly) {
+            ReadOnlySessions.prepare(newEntityManager.unwrap(Session.class));
+        }
+        return newEntityManager;
+    }
+
+    /**
+     * readOnly 이면 쿼리에 read-only 힌트를 준다.
+     */
+    protected Query applyReadOnlyHint(Query query) {
+        if (readOnly) {
+            query.setHint(QueryHints.HINT_READONLY, true);
+        }
+        return query;
+    }
+
+    @Override
+    protected void doReadPage() {
+        long startNanos = System.nanoTime();
+        long startAllocatedBytes = PageReadMetrics.currentThreadAllocatedBytes();
+
+        if (readFromReplica) {
+            ReadWriteRoutingDataSource.onReplica(this::readPage);
+        } else {
+            readPage();
+        }
+
+        pageReadMetrics.record(results.size(), System.nanoTime() - startNanos,
+                startAllocatedBytes, PageReadMetrics.currentThreadAllocatedBytes());
+        log.debug("page={}, rows={}, elapsedNanos={}, allocatedBytes={}", getPage(), results.size(),
+                pageReadMetrics.getLastElapsedNanos(), pageReadMetrics.getLastAllocatedBytes());
+    }
+
+    /**
+     * getPage() 페이지를 조회해서 {@link #initResults()} / {@link #fillResults(List, EntityManager)} 로 results 를 채운다.
+     */
+    protected abstract void readPage();
+
+    /**
+     * 다른 스레드에서 실행되는 페이지 조회(prefetch)도 readFromReplica 를 따르게 감싼다.
+     */
+    protected <R> Supplier<R> routed(Supplier<R> loader) {
+        if (!readFromReplica) {
+            return loader;
+        }
+        return () -> ReadWriteRoutingDataSource.onReplica(loader);
+    }
+
+    /**
+     * results 를 비운다. 페이지 버퍼는 pageSize 크기로 한번만 만들고 이후에는 clear() 해서 재사용한다.
+     */
+    protected void initResults() {
+        if (pageBuffer == null || results != pageBuffer) {
+            pageBuffer = new ArrayList<>(getPageSize());
+            pageReadMetrics.recordBufferAllocation();
+            results = pageBuffer;
+        } else {
+            pageBuffer.clear();
+            pageBuffer.ensureCapacity(getPageSize());
+        }
+    }
+
+    /**
+     * 조회 결과를 한번 순회하며 results 에 담는다. transacted 가 아니면 담으면서 detach 한다.
+     * collectionPreloader 가 있으면 담기 전에 owner 에서 컬렉션을 초기화한다.
+     */
+    protected void fillResults(List<T> queryResult, EntityManager owner) {
+        if (collectionPreloader != null) {
+            collectionPreloader.preload(owner, queryResult);
+        }
+        if (transacted) {
+            pageBuffer.addAll(queryResult);
+            return;
+        }
+        for (T entity : queryResult) {
+            detach(owner, entity);
+            pageBuffer.add(entity);
+        }
+    }
+
+    /**
+     * transacted 가 아닐 때 results 에 담기 전에 호출된다. 엔티티가 아닌 projection 을 읽는 Reader 는 아무것도 하지 않게 override 한다.
+     */
+    protected void detach(EntityManager owner, T item) {
+        owner.detach(item);
+    }
+
+    @Override
+    protected void doJumpToPage(int itemIndex) {
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        replaceEntityManager(null);
+        pageBuffer = null;
+        log.debug("closed. {}", pageReadMetrics);
+        super.doClose();
+    }
+}
@@ -0,0 +1,225 @@
+package seol.study.springbatch.common;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * queryFunction 으로 Querydsl 쿼리를 만들어 페이징 조회하는 Reader 들의 공통 부모. <br/>
+ * prefetch 옵션을 켜면 다음 페이지를 {@link PagePrefetcher} 로 미리 조회한다.
+ * 이전 페이지의 EntityManager 는 그 페이지의 item 을 읽은 chunk 가 끝난 뒤에 닫는다 ({@link RetiredEntityManagers}, ChunkListener 로 Step 에 자동 등록된다) <br/>
+ * adaptivePageSize 옵션을 켜면 페이지 조회 시간에 맞춰 pageSize 를 조절한다.
+ */
+public abstract class AbstractQuerydslPagingItemReader<T> extends AbstractJpaPagingItemReader<T> implements ChunkListener {
+
+    protected Function<JPAQueryFactory, JPAQuery<T>> queryFunction;
+    protected boolean prefetch = false;
+    protected PagePrefetcher<T> prefetcher;
+    private final RetiredEntityManagers retiredEntityManagers = new RetiredEntityManagers();
+
+    protected boolean adaptivePageSize = false;
+    protected int minPageSize;
+    protected int maxPageSize;
+    protected long targetPageReadNanos;
+    private int initialPageSize;
+    private int requestedPageSize;
+    private int current;
+    private long rowOffset;
+
+    /**
+     * 다음 페이지 미리 조회 옵션 <br/>
+     * - true: 페이지 N 을 처리하는 동안 별도 스레드/EntityManager 에서 페이지 N+1 을 조회해둔다 <br/>
+     * (DB 왕복 지연과 processor/writer 처리를 겹친다. 페이지마다 EntityManager 를 새로 만들고, 그 페이지 item 을 읽은 chunk 가 모두 끝나면 닫는다.) <br/>
+     * - 조회 순서와 재시작 위치는 동일하게 유지된다
+     */
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * 페이지 크기 자동 조절 옵션 <br/>
+     * - 직전 페이지의 조회 시간/row 수로 row 당 조회 시간을 계산해서, targetPageReadMillis 에 맞는 크기로 다음 페이지를 조회한다 <br/>
+     * - 한번에 2배 이상 늘리거나 절반 이하로 줄이지 않고, minPageSize ~ maxPageSize 를 벗어나지 않는다 <br/>
+     * - 페이지 크기가 바뀌므로 offset 은 page * pageSize 가 아닌 지금까지 읽은 row 수로 계산한다.
+     * 재시작시에는 ExecutionContext 의 read.count 부터 조회한다 (keyset 페이징이면 lastId 이후부터) <br/>
+     * - prefetch 와 함께 사용할 수 없다
+     */
+    public void setAdaptivePageSize(int minPageSize, int maxPageSize, long targetPageReadMillis) {
+        this.adaptivePageSize = true;
+        this.minPageSize = minPageSize;
+        this.maxPageSize = maxPageSize;
+        this.targetPageReadNanos = TimeUnit.MILLISECONDS.toNanos(targetPageReadMillis);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+        if (adaptivePageSize) {
+            Assert.isTrue(0 < minPageSize && minPageSize <= maxPageSize, "0 < minPageSize <= maxPageSize is required");
+            Assert.isTrue(targetPageReadNanos > 0, "targetPageReadMillis must be positive");
+            Assert.isTrue(!prefetch, "adaptivePageSize can not be used with prefetch");
+        }
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        Assert.state(!(adaptivePageSize && prefetch), "adaptivePageSize can not be used with prefetch");
+        super.doOpen();
+        if (adaptivePageSize) {
+            initialPageSize = getPageSize();
+        }
+        if (prefetch) {
+            prefetcher = new PagePrefetcher<>(ClassUtils.getShortName(getClass()) + "-prefetch-");
+        }
+    }
+
+    /**
+     * adaptivePageSize 이면 page/current 대신 rowOffset/current 로 위치를 관리한다.
+     * (AbstractPagingItemReader 는 pageSize 가 고정이라고 가정하고 위치를 계산한다)
+     */
+    @Override
+    protected T doRead() throws Exception {
+        if (!adaptivePageSize) {
+            return super.doRead();
+        }
+
+        if (results == null || (current >= results.size() && results.size() >= requestedPageSize)) {
+            requestedPageSize = getPageSize();
+            doReadPage();
+            rowOffset += results.size();
+            current = 0;
+            adjustPageSize(results.size(), getPageReadMetrics().getLastElapsedNanos());
+        }
+
+        if (current < results.size()) {
+            return results.get(current++);
+        }
+        return null;
+    }
+
+    private void adjustPageSize(int rows, long elapsedNanos) {
+        if (rows == 0 || rows < requestedPageSize) {
+            return; // 마지막 페이지
+        }
+        double nanosPerRow = Math.max(1.0, (double) elapsedNanos / rows);
+        long fitted = (long) (targetPageReadNanos / nanosPerRow);
+
+        int pageSize = getPageSize();
+        long next = Math.max(pageSize / 2, Math.min((long) pageSize * 2, fitted));
+        setPageSize((int) Math.max(minPageSize, Math.min(maxPageSize, next)));
+    }
+
+    /**
+     * page 의 첫 row 위치. adaptivePageSize 이면 지금까지 읽은 row 수이다.
+     */
+    protected long pageOffset(int page) {
+        if (adaptivePageSize) {
+            return rowOffset;
+        }
+        return (long) page * getPageSize();
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        if (adaptivePageSize) {
+            rowOffset = itemIndex;
+            return;
+        }
+        super.jumpToItem(itemIndex);
+    }
+
+    @Override
+    protected void readPage() {
+        if (prefetcher != null) {
+            readPrefetchedPage();
+        } else {
+            readCurrentPage();
+        }
+    }
+
+    /**
+     * 현재 EntityManager 로 getPage() 페이지를 조회한다.
+     */
+    protected abstract void readCurrentPage();
+
+    /**
+     * page 를 전용 EntityManager 로 조회하는 loader. (prefetch 스레드에서 실행될 수 있으므로, 필요한 상태는 호출 시점에 캡쳐한다)
+     */
+    protected abstract Supplier<PagePrefetcher.Page<T>> pageLoader(int page);
+
+    /**
+     * 페이지가 results 에 채워진 직후 호출된다.
+     */
+    protected void afterPageFilled() {
+    }
+
+    protected JPAQuery<T> createQuery() {
+        return createQuery(getEntityManager());
+    }
+
+    protected JPAQuery<T> createQuery(EntityManager entityManager) {
+        JPAQueryFactory queryFactory = new JPAQueryFactory(entityManager);
+        JPAQuery<T> query = queryFunction.apply(queryFactory);
+        if (readOnly) {
+            query.setHint(QueryHints.HINT_READONLY, true);
+        }
+        return query;
+    }
+
+    /**
+     * 미리 조회된 페이지를 받아서 results 를 채우고, 페이지가 가득 찼으면 다음 페이지를 미리 조회한다.
+     * 받은 페이지의 EntityManager 를 현재 EntityManager 로 사용하고, 이전 페이지의 EntityManager 는 진행 중인 chunk 가 끝날 때 닫는다.
+     */
+    protected void readPrefetchedPage() {
+        int page = getPage();
+        PagePrefetcher.Page<T> fetched = prefetcher.take(page, routed(pageLoader(page)));
+        retiredEntityManagers.retire(swapEntityManager(fetched.getEntityManager()));
+
+        initResults();
+        fillResults(fetched.getItems(), fetched.getEntityManager());
+        afterPageFilled();
+
+        if (fetched.getItems().size() >= getPageSize()) {
+            prefetcher.prefetch(page + 1, routed(pageLoader(page + 1)));
+        }
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        retiredEntityManagers.chunkStarted();
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        retiredEntityManagers.chunkFinished();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        retiredEntityManagers.chunkFinished();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (prefetcher != null) {
+            prefetcher.close();
+            prefetcher = null;
+        }
+        retiredEntityManagers.closeAll();
+        if (adaptivePageSize) {
+            setPageSize(initialPageSize);
+            requestedPageSize = 0;
+            current = 0;
+            rowOffset = 0;
+        }
+        super.doClose();
+    }
+}
@@ -0,0 +1,94 @@
+package seol.study.springbatch.common;
+
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 한 페이지의 엔티티들의 lazy 컬렉션을 컬렉션마다 IN 쿼리 1번으로 초기화한다.
+ * <p>
+ * SELECT DISTINCT e FROM Entity e LEFT JOIN FETCH e.{collection} WHERE e IN (:items) <br/>
+ * - 페이지의 엔티티가 관리되고 있는 EntityManager 에서 실행하므로, 같은 인스턴스의 컬렉션이 채워진다. <br/>
+ * - 페이지당 쿼리 수는 최대 컬렉션 수다. (transacted 여부나 hibernate.default_batch_fetch_size 와 무관) <br/>
+ * - 세션이 2차 캐시를 읽는다면(CacheMode GET), 캐시에 컬렉션이 있는 owner 는 쿼리에서 빼고 캐시에서 초기화한다.
+ * 나머지를 조회한 결과는 컬렉션 캐시에 저장되므로 다음 실행부터는 캐시에서 읽는다. <br/>
+ * - bag(List) 컬렉션 2개를 한 쿼리에서 fetch join 할 수 없으므로 컬렉션마다 따로 조회한다. <br/>
+ * Reader 에서는 {@link AbstractJpaPagingItemReader#setCollectionPreloader(CollectionPreloader)} 로 사용한다. (detach 전에 실행된다)
+ */
+public class CollectionPreloader<T> {
+
+    private final Class<T> entityClass;
+    private final String[] collectionAttributes;
+    private final AtomicLong queryCount = new AtomicLong();
+
+    public CollectionPreloader(Class<T> entityClass, String... collectionAttributes) {
+        Assert.notNull(entityClass, "An entity class is required");
+        Assert.notEmpty(collectionAttributes, "At least one collection attribute is required");
+        this.entityClass = entityClass;
+        this.collectionAttributes = collectionAttributes;
+    }
+
+    public void preload(EntityManager entityManager, List<T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        String entityName = entityManager.getMetamodel().entity(entityClass).getName();
+        Session session = entityManager.unwrap(Session.class);
+        for (String attribute : collectionAttributes) {
+            List<T> uncached = initializeCached(session, attribute, items);
+            if (uncached.isEmpty()) {
+                continue;
+            }
+            entityManager.createQuery("SELECT DISTINCT e FROM " + entityName + " e LEFT JOIN FETCH e." + attribute
+                            + " WHERE e IN (:items)", entityClass)
+                    .setParameter("items", uncached)
+                    .setFlushMode(FlushModeType.COMMIT)
+                    .setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false)
+                    .getResultList();
+            queryCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 2차 캐시에 attribute 컬렉션이 있는 item 은 캐시에서 초기화하고, 나머지 item 을 돌려준다. <br/>
+     * 세션이 캐시를 읽지 않으면(Reader 의 useSecondLevelCache=false 등) 모두 돌려준다.
+     */
+    private List<T> initializeCached(Session session, String attribute, List<T> items) {
+        if (!session.getCacheMode().isGetEnabled()) {
+            return items;
+        }
+        SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) session.getSessionFactory();
+        Cache cache = sessionFactory.getCache();
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(entityClass);
+        String role = persister.getEntityName() + "." + attribute;
+        List<T> uncached = new ArrayList<>(items.size());
+        for (T item : items) {
+            Serializable id = persister.getIdentifier(item, (SharedSessionContractImplementor) session);
+            if (cache.containsCollection(role, id)) {
+                Hibernate.initialize(persister.getPropertyValue(item, attribute));
+            } else {
+                uncached.add(item);
+            }
+        }
+        return uncached;
+    }
+
+    /**
+     * 지금까지 실행한 preload 쿼리 수 (캐시를 쓰지 않으면 = 페이지 수 x 컬렉션 수)
+     */
+    public long getQueryCount() {
+        return queryCount.get();
+    }
+}
@@ -0,0 +1,72 @@
+package seol.study.springbatch.common;
+
+import org.hibernate.Session;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * item 마다 자기 EntityManager 에서 엔티티를 다시 조회해 처리하는 Processor.
+ * <p>
+ * AsyncItemProcessor 의 delegate 로 쓴다. Reader 의 EntityManager 는 thread-safe 하지 않아 worker 스레드에서 lazy 로딩을 할 수 없다. <br/>
+ * (Reader 에 CollectionPreloader 가 있으면 이미 초기화된 컬렉션을 그대로 읽으면 되므로 이 Processor 가 필요 없다) <br/>
+ * 그래서 worker 스레드마다 read-only EntityManager 를 열어 id 로 다시 조회하고, 처리가 끝나면 닫는다. <br/>
+ * - 결과 객체에는 lazy 프록시를 담지 말아야 한다. (EntityManager 가 닫힌 뒤 Writer 에서 사용된다) <br/>
+ * - 트랜잭션 없이 조회하므로 chunk 트랜잭션의 커넥션과 별개로 커넥션 풀에서 스레드 수만큼 커넥션을 더 사용한다. <br/>
+ * - readFromReplica 를 켜면 그 커넥션을 replica 에서 얻는다. ({@link ReadWriteRoutingDataSource})
+ */
+public class EntityManagerPerItemProcessor<I, O> implements ItemProcessor<I, O> {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Class<I> entityClass;
+    private final Function<I, ?> idExtractor;
+    private final BiFunction<EntityManager, I, O> function;
+    private boolean readFromReplica = false;
+
+    public EntityManagerPerItemProcessor(final EntityManagerFactory entityManagerFactory,
+                                         final Class<I> entityClass,
+                                         final Function<I, ?> idExtractor,
+                                         final BiFunction<EntityManager, I, O> function) {
+        Assert.notNull(entityManagerFactory, "An EntityManagerFactory is required");
+        Assert.notNull(entityClass, "An entity class is required");
+        Assert.notNull(idExtractor, "An id extractor is required");
+        Assert.notNull(function, "A function is required");
+        this.entityManagerFactory = entityManagerFactory;
+        this.entityClass = entityClass;
+        this.idExtractor = idExtractor;
+        this.function = function;
+    }
+
+    /**
+     * item 조회(find)와 function 안의 lazy 로딩을 replica 로 보낸다. (ReadWriteRoutingDataSource 가 없으면 아무 영향이 없다)
+     */
+    public void setReadFromReplica(final boolean readFromReplica) {
+        this.readFromReplica = readFromReplica;
+    }
+
+    @Override
+    public O process(final I item) {
+        if (readFromReplica) {
+            return ReadWriteRoutingDataSource.onReplica(() -> processInOwnEntityManager(item));
+        }
+        return processInOwnEntityManager(item);
+    }
+
+    private O processInOwnEntityManager(final I item) {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.unwrap(Session.class).setDefaultReadOnly(true);
+            final I managed = entityManager.find(entityClass, idExtractor.apply(item));
+            if (managed == null) {
+                return null; // 그 사이 삭제된 item 은 건너뛴다
+            }
+            return function.apply(entityManager, managed);
+        } finally {
+            entityManager.close();
+        }
+    }
+}
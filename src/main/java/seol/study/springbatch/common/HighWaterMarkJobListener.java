@@ -0,0 +1,108 @@
+package seol.study.springbatch.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.util.Assert;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 증분 처리를 위한 high-water mark 를 Job ExecutionContext 에 저장한다.
+ * <p>
+ * - Job 시작 시각을 {@link #HIGH_WATER_MARK} 로 저장한다. <br/>
+ * - 같은 범위(scopeParameters 값이 같은 Job Instance)에서 마지막으로 COMPLETED 된 실행의 {@link #HIGH_WATER_MARK} 를 찾아 {@link #SINCE} 로 넘긴다.
+ * Reader 는 #{jobExecutionContext[since]} 이후 바뀐 데이터만 조회하면 된다. (ex. address=서울 실행의 mark 를 address=부산 실행이 쓰지 않는다) <br/>
+ * - 이전 실행이 없거나 모두 실패했다면 {@link #SINCE} 는 없다. (전체 조회) <br/>
+ * - 재시작이면 처음 실행 때의 {@link #SINCE} 와 {@link #HIGH_WATER_MARK} 를 그대로 쓴다. <br/>
+ * 처음 실행의 시작 시각을 기준으로 하므로, 실행 중이나 실패 후 재시작 전에 바뀐 데이터는 (재시작이 이미 commit 된 구간을 건너뛰더라도) 다음 실행에서 다시 읽는다.
+ * 한번 더 처리될 수는 있지만 빠지지는 않는다.
+ */
+@Slf4j
+public class HighWaterMarkJobListener implements JobExecutionListener {
+
+    public static final String HIGH_WATER_MARK = "highWaterMark";
+    public static final String SINCE = "since";
+
+    private static final int INSTANCE_PAGE_SIZE = 20;
+
+    private final JobExplorer jobExplorer;
+    private final String[] scopeParameters;
+
+    /**
+     * @param scopeParameters 값이 같아야 같은 범위로 보는 Job Parameter (ex. address). 없으면 Job 이름만으로 찾는다.
+     */
+    public HighWaterMarkJobListener(final JobExplorer jobExplorer, final String... scopeParameters) {
+        Assert.notNull(jobExplorer, "A JobExplorer is required");
+        this.jobExplorer = jobExplorer;
+        this.scopeParameters = scopeParameters;
+    }
+
+    @Override
+    public void beforeJob(final JobExecution jobExecution) {
+        final ExecutionContext context = jobExecution.getExecutionContext();
+        if (!context.containsKey(SINCE)) {
+            final String since = findLastHighWaterMark(jobExecution);
+            if (since != null) {
+                context.putString(SINCE, since);
+            }
+        }
+        if (!context.containsKey(HIGH_WATER_MARK)) {
+            context.putString(HIGH_WATER_MARK, LocalDateTime.now().toString());
+        }
+        log.info("high-water mark. since={}, highWaterMark={}", context.get(SINCE), context.get(HIGH_WATER_MARK));
+    }
+
+    @Override
+    public void afterJob(final JobExecution jobExecution) {
+    }
+
+    private String findLastHighWaterMark(final JobExecution current) {
+        final String jobName = current.getJobInstance().getJobName();
+        for (int start = 0; ; start += INSTANCE_PAGE_SIZE) {
+            final List<JobInstance> instances = jobExplorer.getJobInstances(jobName, start, INSTANCE_PAGE_SIZE);
+            if (instances.isEmpty()) {
+                return null;
+            }
+            String lastMark = null;
+            for (final JobInstance instance : instances) {
+                for (final JobExecution execution : jobExplorer.getJobExecutions(instance)) {
+                    if (execution.getId().equals(current.getId()) || execution.getStatus() != BatchStatus.COMPLETED
+                            || !sameScope(execution.getJobParameters(), current.getJobParameters())) {
+                        continue;
+                    }
+                    final String mark = execution.getExecutionContext().containsKey(HIGH_WATER_MARK)
+                            ? execution.getExecutionContext().getString(HIGH_WATER_MARK)
+                            : null;
+                    if (mark != null && (lastMark == null || parse(mark).isAfter(parse(lastMark)))) {
+                        lastMark = mark;
+                    }
+                }
+            }
+            // Job Instance 는 최신순이므로 찾은 페이지에서 멈춘다
+            if (lastMark != null) {
+                return lastMark;
+            }
+        }
+    }
+
+    private boolean sameScope(final JobParameters jobParameters, final JobParameters current) {
+        for (final String key : scopeParameters) {
+            if (!Objects.equals(jobParameters.getParameters().get(key), current.getParameters().get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static LocalDateTime parse(final String mark) {
+        return mark == null ? null : LocalDateTime.parse(mark);
+    }
+}
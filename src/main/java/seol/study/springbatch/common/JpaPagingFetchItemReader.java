@@ -1,25 +1,13 @@
 package seol.study.springbatch.common;
 
-import org.springframework.batch.item.database.AbstractPagingItemReader;
 import org.springframework.batch.item.database.orm.JpaQueryProvider;
-import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
-import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
 import javax.persistence.Query;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
 
-public class JpaPagingFetchItemReader<T> extends AbstractPagingItemReader<T> {
-    private EntityManagerFactory entityManagerFactory;
-
-    private EntityManager entityManager;
-
-    private final Map<String, Object> jpaPropertyMap = new HashMap<>();
+public class JpaPagingFetchItemReader<T> extends AbstractJpaPagingItemReader<T> {
 
     private String queryString;
 
@@ -27,8 +15,6 @@ public class JpaPagingFetchItemReader<T> extends AbstractPagingItemReader<T> {
 
     private Map<String, Object> parameterValues;
 
-    private boolean transacted = true;//default value
-
     public JpaPagingFetchItemReader() {
         setName(ClassUtils.getShortName(JpaPagingFetchItemReader.class));
     }
@@ -39,16 +25,12 @@ public class JpaPagingFetchItemReader<T> extends AbstractPagingItemReader<T> {
      */
     private Query createQuery() {
         if (queryProvider == null) {
-            return entityManager.createQuery(queryString);
+            return getEntityManager().createQuery(queryString);
         } else {
             return queryProvider.createQuery();
         }
     }
 
-    public void setEntityManagerFactory(final EntityManagerFactory entityManagerFactory) {
-        this.entityManagerFactory = entityManagerFactory;
-    }
-
     /**
      * The parameter values to be used for the query execution.
      *
@@ -67,8 +49,9 @@ public class JpaPagingFetchItemReader<T> extends AbstractPagingItemReader<T> {
      *
      * @param transacted indicator
      */
+    @Override
     public void setTransacted(final boolean transacted) {
-        this.transacted = transacted;
+        super.setTransacted(transacted);
     }
 
     @Override
@@ -99,26 +82,22 @@ public class JpaPagingFetchItemReader<T> extends AbstractPagingItemReader<T> {
     protected void doOpen() throws Exception {
         super.doOpen();
 
-        entityManager = entityManagerFactory.createEntityManager(jpaPropertyMap);
-        if (entityManager == null) {
-            throw new DataAccessResourceFailureException("Unable to obtain an EntityManager");
-        }
         // set entityManager to queryProvider, so it participates
         // in JpaPagingItemReader's managed transaction
         if (queryProvider != null) {
-            queryProvider.setEntityManager(entityManager);
+            queryProvider.setEntityManager(getEntityManager());
         }
 
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    protected void doReadPage() {
+    protected void readPage() {
         if (transacted) {
-            entityManager.clear();
+            getEntityManager().clear();
         }//end if
 
-        final Query query = createQuery().setFirstResult(getPage() * getPageSize()).setMaxResults(getPageSize());
+        final Query query = applyReadOnlyHint(createQuery()).setFirstResult(getPage() * getPageSize()).setMaxResults(getPageSize());
 
         if (parameterValues != null) {
             for (final Map.Entry<String, Object> me : parameterValues.entrySet()) {
@@ -126,30 +105,8 @@ public class JpaPagingFetchItemReader<T> extends AbstractPagingItemReader<T> {
             }
         }
 
-        if (results == null) {
-            results = new CopyOnWriteArrayList<>();
-        } else {
-            results.clear();
-        }
+        initResults();
 
-        if (!transacted) {
-            final List<T> queryResult = query.getResultList();
-            for (final T entity : queryResult) {
-                entityManager.detach(entity);
-                results.add(entity);
-            }//end if
-        } else {
-            results.addAll(query.getResultList());
-        }//end if
-    }
-
-    @Override
-    protected void doJumpToPage(final int itemIndex) {
-    }
-
-    @Override
-    protected void doClose() throws Exception {
-        entityManager.close();
-        super.doClose();
+        fillResults(query.getResultList(), getEntityManager());
     }
 }
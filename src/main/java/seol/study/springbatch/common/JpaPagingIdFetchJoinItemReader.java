@@ -0,0 +1,125 @@
+package seol.study.springbatch.common;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 컬렉션 fetch join을 페이징 하기 위한 2단계 Reader.
+ * <p>
+ * 1. idQueryString 으로 id만 DB에서 페이징(setFirstResult/setMaxResults) 한다. <br/>
+ * 2. fetchQueryStrings 로 해당 페이지의 엔티티를 {@code where id in (:ids)} 로 fetch join 하여 조회한다. <br/>
+ * - 컬렉션 fetch join + 페이징시 발생하는 HHH000104(메모리 페이징)를 피한다. <br/>
+ * - List(bag) 컬렉션은 한 쿼리에서 둘 이상 fetch join 할 수 없으므로(MultipleBagFetchException),
+ * 컬렉션마다 fetch 쿼리를 나누면 같은 영속성 컨텍스트의 엔티티에 차례로 채워진다.
+ */
+public class JpaPagingIdFetchJoinItemReader<T> extends AbstractJpaPagingItemReader<T> {
+
+    public static final String IDS_PARAMETER = "ids";
+
+    private String idQueryString;
+
+    private List<String> fetchQueryStrings;
+
+    private Map<String, Object> parameterValues;
+
+    public JpaPagingIdFetchJoinItemReader() {
+        setName(ClassUtils.getShortName(JpaPagingIdFetchJoinItemReader.class));
+    }
+
+    /**
+     * @param idQueryString id만 조회하는 JPQL (ex. SELECT s.id FROM Store s WHERE ... ORDER BY s.id)
+     */
+    public void setIdQueryString(final String idQueryString) {
+        this.idQueryString = idQueryString;
+    }
+
+    /**
+     * @param fetchQueryStrings {@code :ids} 파라미터로 엔티티를 fetch join 하는 JPQL 목록
+     *                          (ex. SELECT DISTINCT s FROM Store s LEFT JOIN FETCH s.products WHERE s.id IN (:ids))
+     */
+    public void setFetchQueryStrings(final List<String> fetchQueryStrings) {
+        this.fetchQueryStrings = fetchQueryStrings;
+    }
+
+    /**
+     * The parameter values to be used for the id query execution.
+     *
+     * @param parameterValues the values keyed by the parameter named used in
+     *                        the id query string.
+     */
+    public void setParameterValues(final Map<String, Object> parameterValues) {
+        this.parameterValues = parameterValues;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+
+        Assert.notNull(entityManagerFactory, "EntityManagerFactory is required");
+        Assert.hasLength(idQueryString, "Id query string is required");
+        Assert.notEmpty(fetchQueryStrings, "Fetch query strings are required");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void readPage() {
+        if (transacted) {
+            getEntityManager().clear();
+        }//end if
+
+        final Query idQuery = getEntityManager().createQuery(idQueryString)
+                .setFirstResult(getPage() * getPageSize())
+                .setMaxResults(getPageSize());
+
+        if (parameterValues != null) {
+            for (final Map.Entry<String, Object> me : parameterValues.entrySet()) {
+                idQuery.setParameter(me.getKey(), me.getValue());
+            }
+        }
+
+        final List<Object> ids = idQuery.getResultList();
+
+        initResults();
+
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        final Map<Object, T> entities = fetchByIds(ids);
+
+        final List<T> page = new ArrayList<>(ids.size());
+        for (final Object id : ids) {
+            final T entity = entities.get(id);
+            if (entity != null) { // id 조회 이후 삭제된 경우 제외
+                page.add(entity);
+            }
+        }
+        fillResults(page, getEntityManager());
+    }
+
+    /**
+     * fetch 쿼리를 차례로 실행한다. 같은 EntityManager 이므로 이미 로딩된 엔티티에 컬렉션만 추가로 초기화된다.
+     * in 절 조회는 순서를 보장하지 않으므로 id로 묶어서 돌려주고, 순서는 id 쿼리 순서를 따른다.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Object, T> fetchByIds(final List<Object> ids) {
+        final PersistenceUnitUtil persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        final Map<Object, T> entities = new LinkedHashMap<>();
+        for (final String fetchQueryString : fetchQueryStrings) {
+            final List<T> fetched = applyReadOnlyHint(getEntityManager().createQuery(fetchQueryString))
+                    .setParameter(IDS_PARAMETER, ids)
+                    .getResultList();
+            for (final T entity : fetched) {
+                entities.putIfAbsent(persistenceUnitUtil.getIdentifier(entity), entity);
+            }
+        }
+        return entities;
+    }
+}
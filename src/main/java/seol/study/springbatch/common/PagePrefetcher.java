@@ -0,0 +1,120 @@
+package seol.study.springbatch.common;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 다음 페이지를 별도 스레드에서 미리 조회해두는 더블 버퍼. <br/>
+ * - 버퍼 크기는 1 페이지이며, 페이지 N 을 처리하는 동안 페이지 N+1 만 조회한다 (순서 보장) <br/>
+ * - 미리 조회한 페이지는 전용 EntityManager 와 함께 넘겨진다.
+ * 넘겨받은 쪽이 해당 EntityManager 의 소유자가 되며 (lazy loading 용), 페이지 item 을 더 이상 쓰지 않을 때 닫아야 한다.
+ */
+public class PagePrefetcher<T> {
+
+    private final ExecutorService executor;
+    private Future<Page<T>> pending;
+    private int pendingPage = -1;
+
+    public PagePrefetcher(String threadNamePrefix) {
+        this.executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory(threadNamePrefix));
+    }
+
+    /**
+     * 미리 조회된 page 가 있으면 완료될때까지 기다려서 돌려주고, 없으면 현재 스레드에서 loader 로 조회한다.
+     */
+    public Page<T> take(int page, Supplier<Page<T>> loader) {
+        Future<Page<T>> future = pending;
+        int futurePage = pendingPage;
+        pending = null;
+        pendingPage = -1;
+
+        if (future == null) {
+            return loader.get();
+        }
+        if (futurePage != page) {
+            discard(future);
+            return loader.get();
+        }
+        return await(future);
+    }
+
+    /**
+     * page 를 백그라운드에서 조회한다. 아직 넘겨주지 않은 페이지가 있으면 버린다.
+     */
+    public void prefetch(int page, Supplier<Page<T>> loader) {
+        if (pending != null) {
+            discard(pending);
+        }
+        pending = executor.submit(loader::get);
+        pendingPage = page;
+    }
+
+    /**
+     * 조회 중인 페이지가 있으면 끝날때까지 기다린 뒤 EntityManager 를 닫고, 스레드를 종료한다.
+     */
+    public void close() {
+        if (pending != null) {
+            discard(pending);
+            pending = null;
+            pendingPage = -1;
+        }
+        executor.shutdown();
+    }
+
+    boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    private Page<T> await(Future<Page<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for prefetched page", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to prefetch page", e.getCause());
+        }
+    }
+
+    private void discard(Future<Page<T>> future) {
+        try {
+            await(future).close();
+        } catch (RuntimeException ignored) {
+            // 버려지는 페이지의 조회 실패는 무시한다
+        }
+    }
+
+    public static class Page<T> {
+
+        private final EntityManager entityManager;
+        private final List<T> items;
+
+        public Page(EntityManager entityManager, List<T> items) {
+            this.entityManager = entityManager;
+            this.items = items;
+        }
+
+        public EntityManager getEntityManager() {
+            return entityManager;
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        void close() {
+            if (entityManager.isOpen()) {
+                entityManager.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package seol.study.springbatch.common;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 페이지 조회 1회당 걸린 시간, 읽은 row 수, 할당한 메모리(byte)를 누적한다. <br/>
+ * - 시간/할당량은 doReadPage() 를 호출한 스레드 기준이다 (prefetch 사용시 미리 조회된 페이지를 기다린 시간) <br/>
+ * - 스레드별 할당량을 지원하지 않는 JVM 에서는 allocatedBytes 가 0 으로 남는다
+ */
+public class PageReadMetrics {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final AtomicLong pageCount = new AtomicLong();
+    private final AtomicLong rowCount = new AtomicLong();
+    private final AtomicLong elapsedNanos = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong bufferAllocations = new AtomicLong();
+    private volatile long lastElapsedNanos;
+    private volatile long lastAllocatedBytes;
+
+    public static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            if (threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return threadMXBean.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    public void record(int rows, long elapsedNanos, long startAllocatedBytes, long endAllocatedBytes) {
+        long allocated = startAllocatedBytes < 0 || endAllocatedBytes < 0 ? 0 : endAllocatedBytes - startAllocatedBytes;
+
+        this.pageCount.incrementAndGet();
+        this.rowCount.addAndGet(rows);
+        this.elapsedNanos.addAndGet(elapsedNanos);
+        this.allocatedBytes.addAndGet(allocated);
+        this.lastElapsedNanos = elapsedNanos;
+        this.lastAllocatedBytes = allocated;
+    }
+
+    public void recordBufferAllocation() {
+        bufferAllocations.incrementAndGet();
+    }
+
+    public long getPageCount() {
+        return pageCount.get();
+    }
+
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * 페이지 버퍼를 새로 만든 횟수. 버퍼를 재사용하면 open 당 1 이다.
+     */
+    public long getBufferAllocations() {
+        return bufferAllocations.get();
+    }
+
+    public long getLastElapsedNanos() {
+        return lastElapsedNanos;
+    }
+
+    public long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "PageReadMetrics{" +
+                "pageCount=" + getPageCount() +
+                ", rowCount=" + getRowCount() +
+                ", elapsedNanos=" + getElapsedNanos() +
+                ", allocatedBytes=" + getAllocatedBytes() +
+                ", bufferAllocations=" + getBufferAllocations() +
+                '}';
+    }
+}
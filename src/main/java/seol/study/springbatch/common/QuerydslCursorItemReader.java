@@ -2,13 +2,18 @@ package seol.study.springbatch.common;
 
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.FactoryExpressionTransformer;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import com.querydsl.jpa.hibernate.HibernateQueryFactory;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.hibernate.ScrollMode;
 import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStreamException;
@@ -26,27 +31,111 @@ import java.util.function.Function;
 public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamItemReader<T>
         implements InitializingBean {
 
+    private static final String LAST_ID = "last.id";
+
     private ScrollableResults cursor;
     private boolean initialized = false;
     private int fetchSize;
     private SessionFactory sessionFactory;
     private Session statefulSession;
+    private StatelessSession statelessSession;
     private Function<JPAQueryFactory, JPAQuery<T>> queryFunction;
+    private Function<HibernateQueryFactory, HibernateQuery<T>> statelessQueryFunction;
+    private NumberPath<Long> idPath;
+    private Function<T, Long> idExtractor;
+    private Long lastId;
+    private boolean readFromReplica = false;
+    private boolean readOnly = false;
 
     public QuerydslCursorItemReader(final EntityManagerFactory emf, final int fetchSize, final Function<JPAQueryFactory, JPAQuery<T>> queryFunction) {
+        this(emf, fetchSize);
+        this.queryFunction = queryFunction;
+    }
+
+    private QuerydslCursorItemReader(final EntityManagerFactory emf, final int fetchSize) {
         setName(ClassUtils.getShortName(QuerydslCursorItemReader.class));
         this.sessionFactory = emf.unwrap(SessionFactory.class);
         this.fetchSize = fetchSize;
-        this.queryFunction = queryFunction;
+    }
+
+    /**
+     * StatelessSession 으로 조회하는 Reader 를 만든다. <br/>
+     * - 1차 캐시, 스냅샷, dirty checking 이 없어서 scroll 로 읽은 row 는 바로 GC 대상이 된다 <br/>
+     * - 조회/변환만 하는 Job 용도. lazy loading 이 되지 않으므로 필요한 연관관계는 fetch join 하거나 projection 으로 조회한다
+     */
+    public static <T> QuerydslCursorItemReader<T> stateless(final EntityManagerFactory emf, final int fetchSize,
+                                                            final Function<HibernateQueryFactory, HibernateQuery<T>> statelessQueryFunction) {
+        final QuerydslCursorItemReader<T> reader = new QuerydslCursorItemReader<>(emf, fetchSize);
+        reader.statelessQueryFunction = statelessQueryFunction;
+        return reader;
+    }
+
+    public boolean isStateless() {
+        return statelessQueryFunction != null;
+    }
+
+    /**
+     * id(sort key) 기반 재시작 옵션 <br/>
+     * - id 순으로 scroll 하고, 마지막으로 읽은 id 를 ExecutionContext 에 저장한다 <br/>
+     * - 재시작시 앞에서부터 itemCount 만큼 cursor.next() 하지 않고, where id > :lastId 로 cursor 를 다시 연다 <br/>
+     * (재시작 비용이 이전 실행이 처리한 row 수와 무관해진다)
+     *
+     * @param idPath      정렬/조건에 사용할 id 경로 (ex. QStore.store.id)
+     * @param idExtractor 읽은 item에서 id를 꺼내는 함수 (ex. Store::getId)
+     */
+    public void setKeysetRestart(final NumberPath<Long> idPath, final Function<T, Long> idExtractor) {
+        this.idPath = idPath;
+        this.idExtractor = idExtractor;
+    }
+
+    /**
+     * cursor 를 replica 에서 연다. (ReadWriteRoutingDataSource 가 없으면 아무 영향이 없다) <br/>
+     * 세션이 닫힐 때까지 같은 커넥션으로 scroll 하므로 open 시점에만 정하면 된다.
+     */
+    public void setReadFromReplica(final boolean readFromReplica) {
+        this.readFromReplica = readFromReplica;
+    }
+
+    /**
+     * 조회 전용 옵션 <br/>
+     * - stateful: 세션을 FlushMode.MANUAL + defaultReadOnly 로 열고 쿼리도 read-only 로 실행한다. scroll 한 엔티티의 스냅샷을 만들지 않는다 <br/>
+     * - stateless: 스냅샷이 원래 없으므로 JDBC 커넥션만 read-only 로 표시한다 <br/>
+     * (자세한 내용은 {@link ReadOnlySessions})
+     */
+    public void setReadOnly(final boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    private boolean isKeysetRestart() {
+        return idPath != null;
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
         Assert.state(fetchSize >= 0, "fetchSize must not be negative");
+        if (isKeysetRestart()) {
+            Assert.notNull(idExtractor, "idExtractor is required for keyset restart");
+        }
+    }
+
+    @Override
+    public void open(final ExecutionContext executionContext) throws ItemStreamException {
+        if (isKeysetRestart() && isSaveState() && executionContext.containsKey(getExecutionContextKey(LAST_ID))) {
+            lastId = executionContext.getLong(getExecutionContextKey(LAST_ID));
+        }
+        super.open(executionContext);
     }
 
     @Override
     protected T doRead() throws Exception {
+        final T item = readCursor();
+        if (item != null && isKeysetRestart()) {
+            lastId = idExtractor.apply(item);
+        }
+        return item;
+    }
+
+    private T readCursor() {
         if (cursor.next()) {
             final Object[] data = cursor.get();
 
@@ -74,7 +163,9 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
     @Override
     protected void doOpen() throws Exception {
         Assert.state(!initialized, "Cannot open an already opened ItemReader, call close first");
-        cursor = getForwardOnlyCursor(fetchSize);
+        cursor = readFromReplica
+                ? ReadWriteRoutingDataSource.onReplica(() -> getForwardOnlyCursor(fetchSize))
+                : getForwardOnlyCursor(fetchSize);
         initialized = true;
     }
 
@@ -84,13 +175,19 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
     }
 
     public Query createQuery() {
+        if (isStateless()) {
+            return createStatelessQuery();
+        }
 
         if (statefulSession == null) {
             statefulSession = sessionFactory.openSession();
+            if (readOnly) {
+                ReadOnlySessions.prepare(statefulSession);
+            }
         }
 
         final JPAQueryFactory queryFactory = new JPAQueryFactory(statefulSession);
-        final JPAQuery<T> jpaQuery = queryFunction.apply(queryFactory);
+        final JPAQuery<T> jpaQuery = applyKeyset(queryFunction.apply(queryFactory));
         final Query query = jpaQuery.createQuery().unwrap(Query.class);
 
 //      set transformer, if necessary
@@ -98,7 +195,37 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
         if (projection instanceof FactoryExpression) {
             query.setResultTransformer(new FactoryExpressionTransformer((FactoryExpression<?>) projection));
         }
+        if (readOnly) {
+            query.setReadOnly(true);
+        }
+
+        return query;
+    }
+
+    private Query createStatelessQuery() {
+        if (statelessSession == null) {
+            statelessSession = sessionFactory.openStatelessSession();
+            if (readOnly) {
+                ReadOnlySessions.markConnectionReadOnly(statelessSession);
+            }
+        }
 
+        final HibernateQueryFactory queryFactory = new HibernateQueryFactory(statelessSession);
+        // projection 이 FactoryExpression 이면 HibernateQuery 가 transformer 를 설정한다
+        return applyKeyset(statelessQueryFunction.apply(queryFactory)).createQuery();
+    }
+
+    /**
+     * 재시작이면 마지막으로 읽은 id 이후부터, id 순으로 조회한다.
+     */
+    private <Q extends JPQLQuery<T>> Q applyKeyset(final Q query) {
+        if (!isKeysetRestart()) {
+            return query;
+        }
+        if (lastId != null) {
+            query.where(idPath.gt(lastId));
+        }
+        query.orderBy(idPath.asc());
         return query;
     }
 
@@ -112,6 +239,9 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
     @Override
     public void update(final ExecutionContext executionContext) throws ItemStreamException {
         super.update(executionContext);
+        if (isKeysetRestart() && isSaveState() && lastId != null) {
+            executionContext.putLong(getExecutionContextKey(LAST_ID), lastId);
+        }
         clear();
     }
 
@@ -134,6 +264,9 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
      */
     @Override
     protected void jumpToItem(final int itemIndex) throws Exception {
+        if (isKeysetRestart() && lastId != null) {
+            return; // cursor 가 이미 lastId 이후부터 열려 있다
+        }
         final int flushSize = Math.max(fetchSize, 100);
         jumpToItem(cursor, itemIndex, flushSize);
     }
@@ -141,7 +274,7 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
     public void jumpToItem(final ScrollableResults cursor, final int itemIndex, final int flushInterval) {
         for (int i = 0; i < itemIndex; i++) {
             cursor.next();
-            if (i % flushInterval == 0) {
+            if (i % flushInterval == 0 && statefulSession != null) {
                 statefulSession.clear(); // Clears in-memory cache
             }
         }
@@ -155,6 +288,7 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
     protected void doClose() throws Exception {
 
         initialized = false;
+        lastId = null;
 
         if (cursor != null) {
             cursor.close();
@@ -169,6 +303,10 @@ public class QuerydslCursorItemReader<T> extends AbstractItemCountingItemStreamI
             ReflectionUtils.invokeMethod(close, statefulSession);
             statefulSession = null;
         }
+        if (statelessSession != null) {
+            statelessSession.close();
+            statelessSession = null;
+        }
     }
 
 }
@@ -0,0 +1,81 @@
+package seol.study.springbatch.common;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.util.Assert;
+
+/**
+ * 조회 대상의 min(id) ~ max(id) 범위를 gridSize 개의 구간으로 나누는 Partitioner. <br/>
+ * 각 파티션의 ExecutionContext 에는 {@link #MIN_ID}, {@link #MAX_ID} 가 저장되며,
+ * Worker Reader 에서 {@code #{stepExecutionContext[minId]}} 로 받아 where 절의 id 범위로 사용한다.
+ */
+public class QuerydslIdRangePartitioner implements Partitioner {
+
+    public static final String MIN_ID = "minId";
+    public static final String MAX_ID = "maxId";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final NumberPath<Long> idPath;
+    private final Function<JPAQueryFactory, JPAQuery<?>> queryFunction;
+
+    /**
+     * @param idPath        범위를 나눌 id 경로 (ex. QStore.store.id)
+     * @param queryFunction 조회 대상의 from/where 절 (select 절은 min/max 로 채워진다)
+     */
+    public QuerydslIdRangePartitioner(EntityManagerFactory entityManagerFactory,
+                                      NumberPath<Long> idPath,
+                                      Function<JPAQueryFactory, JPAQuery<?>> queryFunction) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.idPath = idPath;
+        this.queryFunction = queryFunction;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Assert.isTrue(gridSize > 0, "gridSize must be positive");
+        Tuple range = fetchIdRange();
+        Long min = range == null ? null : range.get(idPath.min());
+        Long max = range == null ? null : range.get(idPath.max());
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        if (min == null || max == null) {
+            return partitions;
+        }
+
+        long targetSize = (max - min) / gridSize + 1;
+        long start = min;
+        int number = 0;
+        while (start <= max) {
+            long end = Math.min(start + targetSize - 1, max);
+
+            ExecutionContext context = new ExecutionContext();
+            context.putLong(MIN_ID, start);
+            context.putLong(MAX_ID, end);
+            partitions.put("partition" + number, context);
+
+            start = end + 1;
+            number++;
+        }
+        return partitions;
+    }
+
+    private Tuple fetchIdRange() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return queryFunction.apply(new JPAQueryFactory(entityManager))
+                .select(idPath.min(), idPath.max())
+                .fetchOne();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -1,30 +1,30 @@
 package seol.study.springbatch.common;
 
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
-import org.springframework.batch.item.database.AbstractPagingItemReader;
-import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
-import org.springframework.util.CollectionUtils;
 
 /**
  * 우아한테크 블로그 버전.
  *
  */
-public class QuerydslPagingItemBatchSizeReader<T> extends AbstractPagingItemReader<T> {
+public class QuerydslPagingItemBatchSizeReader<T> extends AbstractQuerydslPagingItemReader<T> {
 
-    protected final Map<String, Object> jpaPropertyMap = new HashMap<>();
-    protected EntityManagerFactory entityManagerFactory;
-    protected EntityManager entityManager;
-    protected Function<JPAQueryFactory, JPAQuery<T>> queryFunction;
-    protected boolean transacted = true;//default value
+    private static final String LAST_ID = "last.id";
+
+    protected NumberPath<Long> idPath;
+    protected Function<T, Long> idExtractor;
+    protected Long lastId;
+    protected Long pageLastId;
 
     protected QuerydslPagingItemBatchSizeReader() {
         setName(ClassUtils.getShortName(QuerydslPagingItemBatchSizeReader.class));
@@ -39,73 +39,140 @@ public class QuerydslPagingItemBatchSizeReader<T> extends AbstractPagingItemRead
         setPageSize(pageSize);
     }
 
-    public void setTransacted(boolean transacted) {
-        this.transacted = transacted;
+    /**
+     * No-Offset(keyset) 페이징 옵션 <br/>
+     * - offset 대신 마지막으로 읽은 id 이후(where id > :lastId)부터 id 순으로 조회한다 <br/>
+     * - 뒤쪽 페이지로 갈수록 버려지는 row가 늘어나는 offset 스캔을 피한다 <br/>
+     * - 마지막으로 읽은 id는 ExecutionContext에 저장되어, 재시작시 offset 없이 이어서 조회한다
+     *
+     * @param idPath      정렬/조건에 사용할 id 경로 (ex. QStore.store.id)
+     * @param idExtractor 읽은 item에서 id를 꺼내는 함수 (ex. Store::getId)
+     */
+    public void setKeysetPaging(NumberPath<Long> idPath, Function<T, Long> idExtractor) {
+        this.idPath = idPath;
+        this.idExtractor = idExtractor;
+    }
+
+    protected boolean isKeysetPaging() {
+        return idPath != null;
     }
 
     @Override
-    protected void doOpen() throws Exception {
-        super.doOpen();
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+        if (isKeysetPaging()) {
+            Assert.notNull(idExtractor, "idExtractor is required for keyset paging");
+        }
+    }
 
-        entityManager = entityManagerFactory.createEntityManager(jpaPropertyMap);
-        if (entityManager == null) {
-            throw new DataAccessResourceFailureException("Unable to obtain an EntityManager");
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (isKeysetPaging() && isSaveState() && executionContext.containsKey(getExecutionContextKey(LAST_ID))) {
+            lastId = executionContext.getLong(getExecutionContextKey(LAST_ID));
+            pageLastId = lastId;
         }
+        super.open(executionContext);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    protected void doReadPage() {
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        if (isKeysetPaging() && isSaveState() && lastId != null) {
+            executionContext.putLong(getExecutionContextKey(LAST_ID), lastId);
+        }
+    }
+
+    @Override
+    protected T doRead() throws Exception {
+        T item = super.doRead();
+        if (item != null && isKeysetPaging()) {
+            lastId = idExtractor.apply(item);
+        }
+        return item;
+    }
+
+    @Override
+    protected void readCurrentPage() {
 
         clearIfTransacted();
 
-        JPAQuery<T> query = createQuery()
-            .offset(getPage() * getPageSize())
-            .limit(getPageSize());
+        JPAQuery<T> query = isKeysetPaging()
+            ? createKeysetQuery(getEntityManager(), pageLastId)
+            : createQuery()
+                .offset(pageOffset(getPage()))
+                .limit(getPageSize());
 
         initResults();
 
-        fetchQuery(query);
+        fillResults(query.fetch(), getEntityManager());
+        afterPageFilled();
     }
 
     protected void clearIfTransacted() {
         if (transacted) {
-            entityManager.clear();
+            getEntityManager().clear();
         }
     }
 
-    protected JPAQuery<T> createQuery() {
-        JPAQueryFactory queryFactory = new JPAQueryFactory(entityManager);
-        return queryFunction.apply(queryFactory);
+    /**
+     * afterId 이후부터 pageSize 만큼 id 순으로 조회한다.
+     */
+    protected JPAQuery<T> createKeysetQuery(EntityManager entityManager, Long afterId) {
+        JPAQuery<T> query = createQuery(entityManager);
+        if (afterId != null) {
+            query.where(idPath.gt(afterId));
+        }
+        return query
+            .orderBy(idPath.asc())
+            .limit(getPageSize());
     }
 
-    protected void initResults() {
-        if (CollectionUtils.isEmpty(results)) {
-            results = new CopyOnWriteArrayList<>();
-        } else {
-            results.clear();
+    /**
+     * 다음 페이지는 방금 채운 페이지의 마지막 id 이후부터 조회한다.
+     */
+    @Override
+    protected void afterPageFilled() {
+        if (isKeysetPaging() && !results.isEmpty()) {
+            pageLastId = idExtractor.apply(results.get(results.size() - 1));
         }
     }
 
-    protected void fetchQuery(JPAQuery<T> query) {
-        if (!transacted) {
-            List<T> queryResult = query.fetch();
-            for (T entity : queryResult) {
-                entityManager.detach(entity);
-                results.add(entity);
+    @Override
+    protected Supplier<PagePrefetcher.Page<T>> pageLoader(int page) {
+        Long afterId = pageLastId;
+        return () -> {
+            EntityManager pageEntityManager = createEntityManager();
+            try {
+                JPAQuery<T> query = isKeysetPaging()
+                    ? createKeysetQuery(pageEntityManager, afterId)
+                    : createQuery(pageEntityManager)
+                        .offset(pageOffset(page))
+                        .limit(getPageSize());
+                List<T> items = query.fetch();
+                return new PagePrefetcher.Page<>(pageEntityManager, items);
+            } catch (RuntimeException e) {
+                pageEntityManager.close();
+                throw e;
             }
-        } else {
-            results.addAll(query.fetch());
-        }
+        };
     }
 
+    /**
+     * keyset 모드에서는 page/current 위치를 이동하지 않는다.
+     * ExecutionContext에서 복원한 lastId 이후부터 첫 페이지로 다시 조회한다.
+     */
     @Override
-    protected void doJumpToPage(int itemIndex) {
+    protected void jumpToItem(int itemIndex) throws Exception {
+        if (isKeysetPaging()) {
+            return;
+        }
+        super.jumpToItem(itemIndex);
     }
 
     @Override
     protected void doClose() throws Exception {
-        entityManager.close();
+        lastId = null;
+        pageLastId = null;
         super.doClose();
     }
 }
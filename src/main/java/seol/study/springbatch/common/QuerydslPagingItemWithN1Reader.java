@@ -3,29 +3,18 @@ package seol.study.springbatch.common;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
-import org.springframework.batch.item.database.AbstractPagingItemReader;
-import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.util.ClassUtils;
-import org.springframework.util.CollectionUtils;
 
 /**
  * Reader에서 생성한 트랜잭션에 commit();을 호출하는 버전.
  */
-public class QuerydslPagingItemWithN1Reader<T> extends AbstractPagingItemReader<T> {
-
-    protected final Map<String, Object> jpaPropertyMap = new HashMap<>();
-    protected EntityManagerFactory entityManagerFactory;
-    public static EntityManager entityManager;
-    protected Function<JPAQueryFactory, JPAQuery<T>> queryFunction;
-    protected boolean transacted = true; // default value
+public class QuerydslPagingItemWithN1Reader<T> extends AbstractQuerydslPagingItemReader<T> {
 
     protected QuerydslPagingItemWithN1Reader() {
         setName(ClassUtils.getShortName(QuerydslPagingItemWithN1Reader.class));
@@ -55,27 +44,17 @@ public class QuerydslPagingItemWithN1Reader<T> extends AbstractPagingItemReader<
      * - true: 격리 시킨다 <br/>
      * (Reader 조회 결과를 삭제하고 다시 조회했을때 삭제된게 반영되고 조회되길 원할때 사용한다.)
      */
-    public void setTransacted(boolean transacted) {
-        this.transacted = transacted;
-    }
-
     @Override
-    protected void doOpen() throws Exception {
-        super.doOpen();
-
-        entityManager = entityManagerFactory.createEntityManager(jpaPropertyMap);
-        if (entityManager == null) {
-            throw new DataAccessResourceFailureException("Unable to obtain an EntityManager");
-        }
+    public void setTransacted(boolean transacted) {
+        super.setTransacted(transacted);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    protected void doReadPage() {
+    protected void readCurrentPage() {
         EntityTransaction tx = getTxOrNull();
 
         JPQLQuery<T> query = createQuery()
-                .offset(getPage() * getPageSize())
+                .offset(pageOffset(getPage()))
                 .limit(getPageSize());
 
         initResults();
@@ -85,30 +64,19 @@ public class QuerydslPagingItemWithN1Reader<T> extends AbstractPagingItemReader<
 
     protected EntityTransaction getTxOrNull() {
         if (transacted) {
-            EntityTransaction tx = entityManager.getTransaction();
+            EntityTransaction tx = getEntityManager().getTransaction();
             tx.begin();
 
-            entityManager.flush();
-            entityManager.clear();
+            if (!readOnly) { // 조회 전용이면 flush 할 변경이 없다
+                getEntityManager().flush();
+            }
+            getEntityManager().clear();
             return tx;
         }
 
         return null;
     }
 
-    protected JPAQuery<T> createQuery() {
-        JPAQueryFactory queryFactory = new JPAQueryFactory(entityManager);
-        return queryFunction.apply(queryFactory);
-    }
-
-    protected void initResults() {
-        if (CollectionUtils.isEmpty(results)) {
-            results = new CopyOnWriteArrayList<>();
-        } else {
-            results.clear();
-        }
-    }
-
     /**
      * where 의 조건은 id max/min 을 이용한 제한된 범위를 가지게 한다
      *
@@ -116,28 +84,42 @@ public class QuerydslPagingItemWithN1Reader<T> extends AbstractPagingItemReader<
      * @param tx
      */
     protected void fetchQuery(JPQLQuery<T> query, EntityTransaction tx) {
-        if (transacted) {
-            results.addAll(query.fetch());
-            if (tx != null) {
-                tx.commit();
-            }
-        } else {
-            List<T> queryResult = query.fetch();
-            for (T entity : queryResult) {
-                entityManager.detach(entity);
-                results.add(entity);
-            }
+        fillResults(query.fetch(), getEntityManager());
+        if (tx != null) {
+            tx.commit();
         }
     }
 
+    /**
+     * 페이지 전용 EntityManager 로 조회한다. transacted 이면 그 EntityManager 의 트랜잭션에서 조회 후 commit 한다.
+     */
     @Override
-    protected void doJumpToPage(int itemIndex) {
-    }
-
-    @Override
-    protected void doClose() throws Exception {
-        entityManager.close();
-        super.doClose();
+    protected Supplier<PagePrefetcher.Page<T>> pageLoader(int page) {
+        return () -> {
+            EntityManager pageEntityManager = createEntityManager();
+            EntityTransaction tx = null;
+            try {
+                if (transacted) {
+                    tx = pageEntityManager.getTransaction();
+                    tx.begin();
+                }
+
+                List<T> items = createQuery(pageEntityManager)
+                        .offset(pageOffset(page))
+                        .limit(getPageSize())
+                        .fetch();
+
+                if (tx != null) {
+                    tx.commit();
+                }
+                return new PagePrefetcher.Page<>(pageEntityManager, items);
+            } catch (RuntimeException e) {
+                if (tx != null && tx.isActive()) {
+                    tx.rollback();
+                }
+                pageEntityManager.close();
+                throw e;
+            }
+        };
     }
-
 }
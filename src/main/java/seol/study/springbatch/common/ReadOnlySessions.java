@@ -0,0 +1,39 @@
+package seol.study.springbatch.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SharedSessionContract;
+
+import java.sql.SQLException;
+
+/**
+ * Reader 의 readOnly 옵션에서 세션을 조회 전용으로 바꾼다.
+ * <p>
+ * - defaultReadOnly: 로딩한 엔티티의 스냅샷(loaded state)을 만들지 않는다. dirty checking 대상에서 빠진다. <br/>
+ * - FlushMode.MANUAL: 쿼리 전에 auto flush 하지 않는다. <br/>
+ * - JDBC Connection.setReadOnly(true): 드라이버가 지원하면 DB 에 읽기 전용 트랜잭션임을 알린다. (MySQL 은 START TRANSACTION READ ONLY) <br/>
+ * 지원하지 않으면 무시한다. 세션이 커넥션을 잡고 있는 동안(DELAYED_ACQUISITION_AND_HOLD)만 유효하고, 커넥션 풀에 반환될 때 되돌려진다.
+ */
+@Slf4j
+public final class ReadOnlySessions {
+
+    private ReadOnlySessions() {
+    }
+
+    public static void prepare(final Session session) {
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        markConnectionReadOnly(session);
+    }
+
+    public static void markConnectionReadOnly(final SharedSessionContract session) {
+        session.doWork(connection -> {
+            try {
+                connection.setReadOnly(true);
+            } catch (final SQLException e) {
+                log.debug("JDBC read-only is not supported. {}", e.getMessage());
+            }
+        });
+    }
+}
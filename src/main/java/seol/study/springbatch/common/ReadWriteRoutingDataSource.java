@@ -0,0 +1,61 @@
+package seol.study.springbatch.common;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 커넥션을 얻는 시점의 상황에 따라 primary / replica 중 하나로 보낸다.
+ * <p>
+ * - readOnly 트랜잭션 안이거나 {@link #onReplica(Supplier)} 안이면 replica, 그 외에는 primary <br/>
+ * - 트랜잭션 시작 시점에는 readOnly 여부가 아직 정해지지 않았으므로 LazyConnectionDataSourceProxy 로 감싸서 첫 쿼리 시점에 커넥션을 얻게 한다. <br/>
+ * - 커넥션을 얻은 뒤에는 바뀌지 않는다. EntityManager 가 커넥션을 잡고 있으면(DELAYED_ACQUISITION_AND_HOLD) 닫힐 때까지 같은 DB 를 사용한다.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> REPLICA_ROUTING = new ThreadLocal<>();
+
+    public ReadWriteRoutingDataSource(final DataSource primary, final DataSource replica) {
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (Boolean.TRUE.equals(REPLICA_ROUTING.get()) || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * callback 안에서 새로 얻는 커넥션은 replica 로 보낸다. (트랜잭션 없이 EntityManager 를 직접 여는 Reader 용) <br/>
+     * 중첩해서 호출해도 끝나면 이전 상태로 되돌린다.
+     */
+    public static <R> R onReplica(final Supplier<R> callback) {
+        final Boolean previous = REPLICA_ROUTING.get();
+        REPLICA_ROUTING.set(Boolean.TRUE);
+        try {
+            return callback.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_ROUTING.remove();
+            } else {
+                REPLICA_ROUTING.set(previous);
+            }
+        }
+    }
+
+    public static void onReplica(final Runnable callback) {
+        onReplica(() -> {
+            callback.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package seol.study.springbatch.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+
+/**
+ * 다음 페이지로 넘어가서 더 이상 읽지 않는 페이지의 EntityManager 를, 그 페이지의 item 을 들고 있을 수 있는 chunk 가 모두 끝난 뒤에 닫는다.
+ * <p>
+ * - pageSize 와 chunkSize 가 다르거나 멀티 스레드 Step 이면, 페이지가 바뀐 뒤에도 이전 페이지 item 이 아직 처리되지 않은 chunk 에 남아 있다 <br/>
+ * - 이전 페이지에서 더 읽을 item 은 없으므로, 교체 시점 이전에 시작한 chunk 들만 끝나면 닫을 수 있다 <br/>
+ * - chunk 의 시작/종료는 Reader 의 ChunkListener 로 받는다. chunk 밖에서 교체되면(Step 이 아닌 곳에서 read) 바로 닫는다.
+ */
+public class RetiredEntityManagers {
+
+    private final Map<Thread, Long> chunkStarts = new HashMap<>(); // chunk 를 실행 중인 스레드 -> 시작 시점의 sequence
+    private final List<Retired> retired = new ArrayList<>();
+    private long sequence;
+
+    public synchronized void chunkStarted() {
+        chunkStarts.put(Thread.currentThread(), sequence);
+    }
+
+    public synchronized void chunkFinished() {
+        chunkStarts.remove(Thread.currentThread());
+        closeReleasable();
+    }
+
+    /**
+     * 더 이상 읽지 않는 EntityManager 를 맡긴다. 진행 중인 chunk 가 없으면 바로 닫는다.
+     */
+    public synchronized void retire(EntityManager entityManager) {
+        if (entityManager == null) {
+            return;
+        }
+        sequence++;
+        retired.add(new Retired(sequence, entityManager));
+        closeReleasable();
+    }
+
+    /**
+     * 맡아둔 EntityManager 를 모두 닫는다. (Reader close)
+     */
+    public synchronized void closeAll() {
+        for (Retired entry : retired) {
+            close(entry.entityManager);
+        }
+        retired.clear();
+        chunkStarts.clear();
+    }
+
+    synchronized int size() {
+        return retired.size();
+    }
+
+    /**
+     * 진행 중인 chunk 중 가장 먼저 시작한 chunk 이전에 교체된 EntityManager 만 닫는다.
+     */
+    private void closeReleasable() {
+        long oldestChunkStart = chunkStarts.values().stream().mapToLong(Long::longValue).min().orElse(Long.MAX_VALUE);
+        Iterator<Retired> iterator = retired.iterator();
+        while (iterator.hasNext()) {
+            Retired entry = iterator.next();
+            if (entry.sequence <= oldestChunkStart) {
+                close(entry.entityManager);
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void close(EntityManager entityManager) {
+        if (entityManager.isOpen()) {
+            entityManager.close();
+        }
+    }
+
+    private static final class Retired {
+        private final long sequence;
+        private final EntityManager entityManager;
+
+        private Retired(long sequence, EntityManager entityManager) {
+            this.sequence = sequence;
+            this.entityManager = entityManager;
+        }
+    }
+}
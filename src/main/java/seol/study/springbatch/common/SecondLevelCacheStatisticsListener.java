@@ -0,0 +1,82 @@
+package seol.study.springbatch.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Step 이 끝나면 2차 캐시 region 별 hit/miss/put 과 hit 비율을 남긴다.
+ * <p>
+ * - hibernate.generate_statistics=true 일 때만 집계된다. (꺼져 있으면 아무것도 하지 않는다) <br/>
+ * - 통계는 SessionFactory 전체 누적값이므로 Step 시작 시점 값을 빼서 Step 구간만 계산한다. (파티션 Step 이 동시에 돌면 서로의 값이 섞인다) <br/>
+ * - hit 비율은 Step ExecutionContext 에 "secondLevelCache.{region}.hitRatio" 로 저장한다.
+ */
+@Slf4j
+public class SecondLevelCacheStatisticsListener implements StepExecutionListener {
+
+    private static final String KEY_PREFIX = "secondLevelCache.";
+
+    private final Statistics statistics;
+    private final String[] regions;
+    private final Map<Long, Map<String, long[]>> startCounts = new ConcurrentHashMap<>(); // StepExecution id 별 (파티션 Step 이 같은 Listener 를 쓴다)
+
+    public SecondLevelCacheStatisticsListener(final EntityManagerFactory entityManagerFactory, final String... regions) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.regions = regions;
+    }
+
+    @Override
+    public void beforeStep(final StepExecution stepExecution) {
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        final Map<String, long[]> counts = new HashMap<>();
+        for (final String region : regions) {
+            counts.put(region, counts(region));
+        }
+        startCounts.put(stepExecution.getId(), counts);
+    }
+
+    @Override
+    public ExitStatus afterStep(final StepExecution stepExecution) {
+        if (!statistics.isStatisticsEnabled()) {
+            return null;
+        }
+        final Map<String, long[]> started = startCounts.remove(stepExecution.getId());
+        for (final String region : regions) {
+            final long[] end = counts(region);
+            final long[] start = started == null ? new long[3] : started.getOrDefault(region, new long[3]);
+            final long hits = end[0] - start[0];
+            final long misses = end[1] - start[1];
+            final long puts = end[2] - start[2];
+            final double hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+
+            stepExecution.getExecutionContext().putDouble(KEY_PREFIX + region + ".hitRatio", hitRatio);
+            log.info("2nd level cache. step={}, region={}, hit={}, miss={}, put={}, hitRatio={}",
+                    stepExecution.getStepName(), region, hits, misses, puts, String.format("%.3f", hitRatio));
+        }
+        return null;
+    }
+
+    private long[] counts(final String region) {
+        final CacheRegionStatistics regionStatistics;
+        try {
+            regionStatistics = statistics.getDomainDataRegionStatistics(region);
+        } catch (final IllegalArgumentException e) { // 2차 캐시가 꺼져 있거나 없는 region
+            return new long[3];
+        }
+        if (regionStatistics == null) {
+            return new long[3];
+        }
+        return new long[]{regionStatistics.getHitCount(), regionStatistics.getMissCount(), regionStatistics.getPutCount()};
+    }
+}
@@ -2,6 +2,11 @@ package seol.study.springbatch.domain;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -9,10 +14,16 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @Getter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
 public class Employee {
 
+    public static final String CACHE_REGION = "employee";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "employee_seq")
+    @GenericGenerator(name = "employee_seq", strategy = "seol.study.springbatch.domain.PooledIdGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "employee_seq"))
     private Long id;
 
     private String name;
@@ -29,5 +40,8 @@ public class Employee {
 
     public void updateStore(final Store store) {
         this.store = store;
+        if (store != null) {
+            store.markModified();
+        }
     }
 }
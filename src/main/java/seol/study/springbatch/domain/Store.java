@@ -2,8 +2,14 @@ package seol.study.springbatch.domain;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,21 +19,41 @@ import static javax.persistence.CascadeType.ALL;
 @NoArgsConstructor
 @Getter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Store.CACHE_REGION)
+@Table(indexes = @Index(name = "IDX_STORE_LAST_MODIFIED_AT", columnList = "last_modified_at"))
 public class Store {
 
+    /**
+     * 2차 캐시 region. (ehcache.xml) hibernate.cache.use_second_level_cache 가 false 면 사용하지 않는다.
+     */
+    public static final String CACHE_REGION = "store";
+    public static final String PRODUCTS_CACHE_REGION = "store.products";
+    public static final String EMPLOYEES_CACHE_REGION = "store.employees";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "store_seq")
+    @GenericGenerator(name = "store_seq", strategy = "seol.study.springbatch.domain.PooledIdGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "store_seq"))
     private Long id;
 
     private String name;
     private String address;
 
+    /**
+     * Store 나 하위 Product/Employee 가 마지막으로 바뀐 시각. storeBackupBatch 의 증분 모드가 이 값으로 조회한다.
+     */
+    @Column(name = "last_modified_at")
+    private LocalDateTime lastModifiedAt;
+
 //    @OneToMany(mappedBy = "store", cascade = ALL)
     @OneToMany(mappedBy = "store", cascade = ALL, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = PRODUCTS_CACHE_REGION)
     private List<Product> products = new ArrayList<>();
 
 //    @OneToMany(mappedBy = "store", cascade = ALL)
     @OneToMany(mappedBy = "store", cascade = ALL, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = EMPLOYEES_CACHE_REGION)
     private List<Employee> employees = new ArrayList<>();
 
     public Store(final String name, final String address) {
@@ -44,4 +70,13 @@ public class Store {
         this.employees.add(employee);
         employee.updateStore(this);
     }
+
+    /**
+     * Product/Employee 가 바뀌면 Store 의 lastModifiedAt 도 갱신한다. (하위 엔티티 변경은 Store 의 dirty checking 대상이 아니다)
+     */
+    @PrePersist
+    @PreUpdate
+    public void markModified() {
+        this.lastModifiedAt = LocalDateTime.now();
+    }
 }
@@ -0,0 +1,9 @@
+package seol.study.springbatch.domain;
+
+import java.util.List;
+
+/**
+ * 전체 Store 의 상품 가격 합계와 직원 이름 목록.
+ */
+public record StoreAggregate(long productSum, List<String> employeeNames) {
+}
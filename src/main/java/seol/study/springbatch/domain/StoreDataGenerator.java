@@ -0,0 +1,127 @@
+package seol.study.springbatch.domain;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 대량의 Store/Product/Employee 테스트 데이터를 만든다.
+ * <p>
+ * - 같은 spec(seed) 이면 항상 같은 데이터가 만들어진다. Store 마다 (seed, index) 로 난수를 만들어서 스레드 실행 순서와 무관하다 <br/>
+ * - Store index 범위를 parallelism 개로 나눠서 스레드마다 별도 EntityManager/트랜잭션으로 저장한다 <br/>
+ * - commitSize 마다 커밋하고 영속성 컨텍스트를 비우므로 메모리 사용량은 Store 수와 무관하다
+ * (INSERT 는 hibernate.jdbc.batch_size 로 batch 된다)
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class StoreDataGenerator {
+
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+    private static final LocalDate HIRE_DATE_FROM = LocalDate.of(2010, 1, 1);
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public Result generate(final StoreDataSpec spec) {
+        Assert.isTrue(spec.getStoreCount() >= 0, "storeCount must not be negative");
+        Assert.isTrue(spec.getParallelism() > 0, "parallelism must be positive");
+        Assert.isTrue(spec.getCommitSize() > 0, "commitSize must be positive");
+        final long start = System.currentTimeMillis();
+        final int parallelism = Math.max(1, Math.min(spec.getParallelism(), spec.getStoreCount()));
+        final int rangeSize = (spec.getStoreCount() + parallelism - 1) / parallelism;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("store-data-generator-"));
+        try {
+            final List<Future<Result>> futures = new ArrayList<>(parallelism);
+            for (int from = 0; from < spec.getStoreCount(); from += rangeSize) {
+                final int rangeFrom = from;
+                final int rangeTo = Math.min(from + rangeSize, spec.getStoreCount());
+                futures.add(executor.submit(() -> generateRange(spec, rangeFrom, rangeTo)));
+            }
+
+            Result total = new Result(0, 0, 0);
+            for (final Future<Result> future : futures) {
+                total = total.plus(future.get());
+            }
+            log.info("generated {} in {}ms", total, System.currentTimeMillis() - start);
+            return total;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating store data", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Failed to generate store data", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result generateRange(final StoreDataSpec spec, final int from, final int to) {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        final EntityTransaction tx = entityManager.getTransaction();
+        long products = 0;
+        long employees = 0;
+        try {
+            tx.begin();
+            for (int index = from; index < to; index++) {
+                final Store store = createStore(spec, index);
+                products += store.getProducts().size();
+                employees += store.getEmployees().size();
+                entityManager.persist(store);
+
+                if ((index - from + 1) % spec.getCommitSize() == 0) {
+                    tx.commit();
+                    entityManager.clear();
+                    tx.begin();
+                }
+            }
+            tx.commit();
+            return new Result(to - from, products, employees);
+        } catch (final RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private Store createStore(final StoreDataSpec spec, final int index) {
+        final SplittableRandom random = new SplittableRandom(spec.getSeed() ^ (index * SEED_MIX));
+        final List<String> addresses = spec.getAddresses();
+
+        final Store store = new Store(spec.getNamePrefix() + index, addresses.get(random.nextInt(addresses.size())));
+
+        final int productCount = spec.getDistribution().sample(random, spec.getProductsPerStore());
+        for (int i = 0; i < productCount; i++) {
+            store.addProduct(new Product("상품" + index + "_" + i, random.nextInt(1, 1000) * 100L));
+        }
+
+        final int employeeCount = spec.getDistribution().sample(random, spec.getEmployeesPerStore());
+        for (int i = 0; i < employeeCount; i++) {
+            store.addEmployee(new Employee("직원" + index + "_" + i, HIRE_DATE_FROM.plusDays(random.nextInt(5000))));
+        }
+        return store;
+    }
+
+    public record Result(long stores, long products, long employees) {
+
+        Result plus(final Result other) {
+            return new Result(stores + other.stores, products + other.products, employees + other.employees);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package seol.study.springbatch.domain;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * {@link StoreDataGenerator} 로 만들 테스트 데이터 조건.
+ */
+@Getter
+@Builder
+public class StoreDataSpec {
+
+    @Builder.Default
+    private final int storeCount = 2;
+
+    /**
+     * Store 당 평균 Product 수
+     */
+    @Builder.Default
+    private final int productsPerStore = 2;
+
+    /**
+     * Store 당 평균 Employee 수
+     */
+    @Builder.Default
+    private final int employeesPerStore = 2;
+
+    @Builder.Default
+    private final Distribution distribution = Distribution.FIXED;
+
+    @Builder.Default
+    private final long seed = 0L;
+
+    @Builder.Default
+    private final String namePrefix = "매장";
+
+    @Builder.Default
+    private final List<String> addresses = List.of("서울시 강남구", "서울시 마포구", "부산시 해운대구", "대구시 수성구");
+
+    /**
+     * 동시에 저장하는 스레드 수
+     */
+    @Builder.Default
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 한 트랜잭션에서 저장하는 Store 수. 커밋 후 영속성 컨텍스트를 비운다.
+     */
+    @Builder.Default
+    private final int commitSize = 500;
+
+    /**
+     * Store 당 자식 수의 분포
+     */
+    public enum Distribution {
+        /**
+         * 항상 평균값
+         */
+        FIXED,
+        /**
+         * 0 ~ 평균의 2배
+         */
+        UNIFORM,
+        /**
+         * 평균이 같은 파레토 분포(alpha=2). 대부분은 적고 일부 Store 만 매우 많다. (평균의 100배에서 자른다)
+         */
+        PARETO;
+
+        private static final double PARETO_ALPHA = 2.0;
+        private static final int PARETO_CAP = 100;
+
+        int sample(final SplittableRandom random, final int mean) {
+            if (mean <= 0) {
+                return 0;
+            }
+            switch (this) {
+                case UNIFORM:
+                    return random.nextInt(mean * 2 + 1);
+                case PARETO:
+                    final double min = mean * (PARETO_ALPHA - 1) / PARETO_ALPHA;
+                    final double u = 1.0 - random.nextDouble(); // (0, 1]
+                    return (int) Math.min((long) mean * PARETO_CAP, (long) (min / Math.pow(u, 1 / PARETO_ALPHA)));
+                default:
+                    return mean;
+            }
+        }
+    }
+}
@@ -2,11 +2,20 @@ package seol.study.springbatch.domain;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,17 +28,36 @@ import java.util.stream.Collectors;
 @NoArgsConstructor
 @Getter
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "UK_STORE_HISTORY_STORE_SNAPSHOT", columnNames = {"store_id", "snapshot_date"}))
 public class StoreHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "store_history_seq")
+    @GenericGenerator(name = "store_history_seq", strategy = "seol.study.springbatch.domain.PooledIdGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "store_history_seq"))
     private Long id;
 
+    /**
+     * 원본 Store 의 id. snapshotDate 와 함께 유일하다. (같은 날 다시 실행하면 JDBC Writer 는 덮어쓰고, insert-only Writer 는 실패한다)
+     */
+    @Column(name = "store_id")
+    private Long storeId;
+
+    @Column(name = "snapshot_date")
+    private LocalDate snapshotDate = LocalDate.now();
+
     private String storeName;
     private String productNames;
     private String employeeNames;
 
+    /**
+     * 압축 포맷({@link StoreHistoryNamesCodec}). 이 값이 있으면 productNames/employeeNames 는 null 이다.
+     */
+    @Lob
+    private byte[] compactNames;
+
     public StoreHistory(final Store store, final List<Product> products) {
+        this.storeId = store.getId();
         this.storeName = store.getName();
         this.productNames = products.stream()
                 .map(Product::getName)
@@ -37,6 +65,7 @@ public class StoreHistory {
     }
 
     public StoreHistory(final Store store, final List<Product> products, final List<Employee> employees) {
+        this.storeId = store.getId();
         this.storeName = store.getName();
         this.productNames = products.stream()
                 .map(Product::getName)
@@ -46,4 +75,65 @@ public class StoreHistory {
                 .map(Employee::getName)
                 .collect(Collectors.joining(","));
     }
+
+    public StoreHistory(final StoreHistoryRow row) {
+        this.storeId = row.storeId();
+        this.storeName = row.storeName();
+        this.productNames = String.join(",", row.productNames());
+        this.employeeNames = String.join(",", row.employeeNames());
+    }
+
+    /**
+     * 이름 목록을 콤마로 이어붙이지 않고 {@link StoreHistoryNamesCodec} 으로 압축해 저장한다.
+     */
+    public static StoreHistory compact(final Store store, final List<Product> products, final List<Employee> employees) {
+        final StoreHistory history = new StoreHistory();
+        history.storeId = store.getId();
+        history.storeName = store.getName();
+        history.compactNames = StoreHistoryNamesCodec.encode(
+                products.stream().map(Product::getName).collect(Collectors.toList()),
+                employees.stream().map(Employee::getName).collect(Collectors.toList()));
+        return history;
+    }
+
+    public static StoreHistory compact(final StoreHistoryRow row) {
+        final StoreHistory history = new StoreHistory();
+        history.storeId = row.storeId();
+        history.storeName = row.storeName();
+        history.compactNames = StoreHistoryNamesCodec.encode(row.productNames(), row.employeeNames());
+        return history;
+    }
+
+    /**
+     * 스냅샷 기준일을 지정한다. (기본은 생성한 날)
+     */
+    public StoreHistory snapshotOn(final LocalDate snapshotDate) {
+        this.snapshotDate = snapshotDate;
+        return this;
+    }
+
+    public boolean isCompact() {
+        return compactNames != null;
+    }
+
+    /**
+     * 저장 포맷과 상관없이 상품명 목록을 반환한다.
+     */
+    public List<String> getProductNameList() {
+        return isCompact() ? StoreHistoryNamesCodec.decode(compactNames).productNames() : split(productNames);
+    }
+
+    /**
+     * 저장 포맷과 상관없이 직원명 목록을 반환한다.
+     */
+    public List<String> getEmployeeNameList() {
+        return isCompact() ? StoreHistoryNamesCodec.decode(compactNames).employeeNames() : split(employeeNames);
+    }
+
+    private static List<String> split(final String names) {
+        if (names == null || names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(names.split(","));
+    }
 }
@@ -0,0 +1,162 @@
+package seol.study.springbatch.domain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.Serializable;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StoreHistory 를 JDBC batch upsert 로 저장하는 Writer.
+ * <p>
+ * (store_id, snapshot_date) 가 이미 있으면 덮어쓰므로, 실패 후 재실행하거나 파티션이 겹쳐도 중복 row 가 생기지 않는다. (삭제 없이 재실행 가능) <br/>
+ * - H2: MERGE INTO ... USING ... ON (store_id, snapshot_date) <br/>
+ * - MySQL/MariaDB: INSERT ... ON DUPLICATE KEY UPDATE (UK_STORE_HISTORY_STORE_SNAPSHOT) <br/>
+ * 덮어쓸 때 id 는 바꾸지 않는다. (새로 받은 id 는 버려진다)
+ * <p>
+ * StoreHistory 는 pooled-lo 생성기라 Hibernate 도 insert batch 를 쓸 수 있지만, JPA 로는 upsert 를 표현할 수 없고 <br/>
+ * (persist 는 중복 키에서 실패하고, merge 는 item 마다 SELECT 를 먼저 한다) item 마다 영속성 컨텍스트에 엔티티/스냅샷을 쌓고 flush 때 dirty checking 을 한다. <br/>
+ * chunk 를 batchSize 단위의 JDBC batch 로 보내고, MySQL 은 rewriteBatchedStatements=true 로 multi-row INSERT 가 된다. <br/>
+ * id 는 엔티티와 같은 생성기({@link PooledIdGenerator})에서 받는다 (pooled-lo 이므로 increment_size 건마다 1번 조회). <br/>
+ * JdbcTemplate 은 chunk 트랜잭션(JpaTransactionManager)의 커넥션을 같이 사용하므로 chunk 단위로 롤백된다.
+ * <p>
+ * 보낸 upsert 문 수와 JDBC batch 수를 Step ExecutionContext 에 {@link #STATEMENT_COUNT_KEY} / {@link #BATCH_COUNT_KEY} 로 누적한다.
+ * (롤백된 chunk 에서 보낸 것도 포함된다. Step 밖에서 호출되면 getStatementCount()/getBatchCount() 로만 집계된다)
+ */
+@Slf4j
+public class StoreHistoryJdbcBatchItemWriter implements ItemWriter<StoreHistory> {
+
+    static final String H2_UPSERT_SQL = "MERGE INTO store_history t "
+            + "USING (SELECT CAST(? AS BIGINT) AS id, CAST(? AS BIGINT) AS store_id, CAST(? AS DATE) AS snapshot_date, "
+            + "CAST(? AS VARCHAR) AS store_name, CAST(? AS VARCHAR) AS product_names, CAST(? AS VARCHAR) AS employee_names, "
+            + "CAST(? AS BLOB) AS compact_names) s "
+            + "ON t.store_id = s.store_id AND t.snapshot_date = s.snapshot_date "
+            + "WHEN MATCHED THEN UPDATE SET store_name = s.store_name, product_names = s.product_names, "
+            + "employee_names = s.employee_names, compact_names = s.compact_names "
+            + "WHEN NOT MATCHED THEN INSERT (id, store_id, snapshot_date, store_name, product_names, employee_names, compact_names) "
+            + "VALUES (s.id, s.store_id, s.snapshot_date, s.store_name, s.product_names, s.employee_names, s.compact_names)";
+
+    static final String MYSQL_UPSERT_SQL = "INSERT INTO store_history (id, store_id, snapshot_date, store_name, product_names, employee_names, compact_names) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE store_name = VALUES(store_name), product_names = VALUES(product_names), "
+            + "employee_names = VALUES(employee_names), compact_names = VALUES(compact_names)";
+
+    public static final String STATEMENT_COUNT_KEY = "storeHistoryWriter.statementCount";
+    public static final String BATCH_COUNT_KEY = "storeHistoryWriter.batchCount";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final IdentifierGenerator idGenerator;
+    private final int batchSize;
+    private final String upsertSql;
+
+    private final AtomicLong statementCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    public StoreHistoryJdbcBatchItemWriter(final EntityManagerFactory entityManagerFactory, final DataSource dataSource, final int batchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        this.idGenerator = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMetamodel()
+                .entityPersister(StoreHistory.class)
+                .getIdentifierGenerator();
+        this.batchSize = batchSize;
+        this.upsertSql = upsertSql(dataSource);
+    }
+
+    static String upsertSql(final DataSource dataSource) {
+        final String productName;
+        try {
+            productName = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        } catch (final MetaDataAccessException e) {
+            throw new IllegalStateException("Unable to determine the database product name", e);
+        }
+        if ("H2".equals(productName)) {
+            return H2_UPSERT_SQL;
+        }
+        if ("MySQL".equals(productName) || "MariaDB".equals(productName)) {
+            return MYSQL_UPSERT_SQL;
+        }
+        throw new IllegalStateException("StoreHistory upsert is not supported for " + productName);
+    }
+
+    @Override
+    public void write(final List<? extends StoreHistory> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        final SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        final List<Object[]> rows = new ArrayList<>(items.size());
+        for (final StoreHistory history : items) {
+            final Serializable id = idGenerator.generate(session, history);
+            rows.add(new Object[]{id, history.getStoreId(), history.getSnapshotDate(), history.getStoreName(),
+                    history.getProductNames(), history.getEmployeeNames(), history.getCompactNames()});
+        }
+
+        final int[][] result = jdbcTemplate.batchUpdate(upsertSql, rows, batchSize, (ps, row) -> {
+            ps.setObject(1, row[0]);
+            ps.setObject(2, row[1], Types.BIGINT);
+            ps.setDate(3, Date.valueOf((LocalDate) row[2]));
+            ps.setString(4, (String) row[3]);
+            ps.setString(5, (String) row[4]);
+            ps.setString(6, (String) row[5]);
+            ps.setBytes(7, (byte[]) row[6]);
+        });
+
+        statementCount.addAndGet(items.size());
+        batchCount.addAndGet(result.length);
+        publish(items.size(), result.length);
+        log.debug("StoreHistory write. statements={}, batches={}", items.size(), result.length);
+    }
+
+    /**
+     * 현재 Step 의 ExecutionContext 에 누적한다. 멀티 스레드 Step 의 chunk 스레드에도 StepContext 가 등록되어 있으므로 같은 StepExecution 에 모인다.
+     */
+    private static void publish(final int statements, final int batches) {
+        final StepContext stepContext = StepSynchronizationManager.getContext();
+        if (stepContext == null) {
+            return;
+        }
+        final StepExecution stepExecution = stepContext.getStepExecution();
+        synchronized (stepExecution) {
+            final ExecutionContext context = stepExecution.getExecutionContext();
+            context.putLong(STATEMENT_COUNT_KEY, context.getLong(STATEMENT_COUNT_KEY, 0L) + statements);
+            context.putLong(BATCH_COUNT_KEY, context.getLong(BATCH_COUNT_KEY, 0L) + batches);
+        }
+    }
+
+    /**
+     * 지금까지 batch 에 담아 보낸 upsert 문 수 (= 저장하거나 덮어쓴 row 수)
+     */
+    public long getStatementCount() {
+        return statementCount.get();
+    }
+
+    /**
+     * 지금까지 실행한 JDBC batch 수. chunk 당 ceil(chunk 크기 / batchSize) 이다.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+}
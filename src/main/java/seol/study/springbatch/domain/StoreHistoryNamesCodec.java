@@ -0,0 +1,205 @@
+package seol.study.springbatch.domain;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * StoreHistory 의 상품/직원 이름 목록을 압축된 binary 로 변환한다.
+ * <p>
+ * 포맷: [version 1byte][원본 길이 varint][deflate(payload)] <br/>
+ * payload: [사전 크기][사전 (길이 + UTF-8)]... [상품 수][사전 index]... [직원 수][사전 index]... (숫자는 모두 varint) <br/>
+ * - 같은 이름은 사전에 한번만 저장한다. (상품명과 직원명이 같아도 하나) <br/>
+ * - 버퍼, 사전, Deflater 는 스레드마다 하나씩 두고 재사용한다. 결과 byte[] 만 새로 만든다.
+ */
+public final class StoreHistoryNamesCodec {
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+    private StoreHistoryNamesCodec() {
+    }
+
+    public static byte[] encode(final Collection<String> productNames, final Collection<String> employeeNames) {
+        return ENCODER.get().encode(productNames, employeeNames);
+    }
+
+    public static Names decode(final byte[] encoded) {
+        if (encoded == null || encoded.length == 0) {
+            return new Names(Collections.emptyList(), Collections.emptyList());
+        }
+        if (encoded[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("지원하지 않는 포맷입니다. version=" + encoded[0]);
+        }
+
+        final int[] position = {1};
+        final int rawLength = readVarInt(encoded, position);
+        final byte[] raw = inflate(encoded, position[0], rawLength);
+
+        position[0] = 0;
+        final int dictionarySize = readVarInt(raw, position);
+        final String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            final int length = readVarInt(raw, position);
+            dictionary[i] = new String(raw, position[0], length, StandardCharsets.UTF_8);
+            position[0] += length;
+        }
+        final List<String> productNames = readNames(raw, position, dictionary);
+        final List<String> employeeNames = readNames(raw, position, dictionary);
+        return new Names(productNames, employeeNames);
+    }
+
+    public record Names(List<String> productNames, List<String> employeeNames) {
+    }
+
+    private static List<String> readNames(final byte[] raw, final int[] position, final String[] dictionary) {
+        final int count = readVarInt(raw, position);
+        final List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(dictionary[readVarInt(raw, position)]);
+        }
+        return names;
+    }
+
+    private static byte[] inflate(final byte[] encoded, final int offset, final int rawLength) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded, offset, encoded.length - offset);
+            final byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                final int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IllegalArgumentException("손상된 데이터입니다. expected=" + rawLength + ", actual=" + read);
+            }
+            return raw;
+        } catch (final DataFormatException e) {
+            throw new IllegalArgumentException("손상된 데이터입니다.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int readVarInt(final byte[] bytes, final int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static void writeVarInt(final ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * 스레드마다 하나. encode 할 때마다 reset 해서 재사용한다.
+     */
+    private static final class Encoder {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final Buffer dictionaryBytes = new Buffer();
+        private final Buffer raw = new Buffer();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private byte[] compressBuffer = new byte[1024];
+
+        byte[] encode(final Collection<String> productNames, final Collection<String> employeeNames) {
+            dictionary.clear();
+            dictionaryBytes.reset();
+            raw.reset();
+
+            final int[] productIndexes = index(productNames);
+            final int[] employeeIndexes = index(employeeNames);
+
+            writeVarInt(raw, dictionary.size());
+            raw.write(dictionaryBytes.array(), 0, dictionaryBytes.size());
+            writeIndexes(productIndexes);
+            writeIndexes(employeeIndexes);
+
+            return compress();
+        }
+
+        private int[] index(final Collection<String> names) {
+            final int[] indexes = new int[names.size()];
+            int i = 0;
+            for (final String name : names) {
+                Integer index = dictionary.get(name);
+                if (index == null) {
+                    index = dictionary.size();
+                    dictionary.put(name, index);
+                    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(dictionaryBytes, bytes.length);
+                    dictionaryBytes.write(bytes, 0, bytes.length);
+                }
+                indexes[i++] = index;
+            }
+            return indexes;
+        }
+
+        private void writeIndexes(final int[] indexes) {
+            writeVarInt(raw, indexes.length);
+            for (final int index : indexes) {
+                writeVarInt(raw, index);
+            }
+        }
+
+        private byte[] compress() {
+            deflater.reset();
+            deflater.setInput(raw.array(), 0, raw.size());
+            deflater.finish();
+
+            final ByteArrayOutputStream header = new ByteArrayOutputStream(6);
+            header.write(FORMAT_VERSION);
+            writeVarInt(header, raw.size());
+
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressBuffer.length) {
+                    compressBuffer = Arrays.copyOf(compressBuffer, compressBuffer.length * 2);
+                }
+                length += deflater.deflate(compressBuffer, length, compressBuffer.length - length);
+            }
+
+            final byte[] result = new byte[header.size() + length];
+            final byte[] headerBytes = header.toByteArray();
+            System.arraycopy(headerBytes, 0, result, 0, headerBytes.length);
+            System.arraycopy(compressBuffer, 0, result, headerBytes.length, length);
+            return result;
+        }
+    }
+
+    /**
+     * 내부 배열을 복사하지 않고 넘기기 위한 버퍼
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(1024);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
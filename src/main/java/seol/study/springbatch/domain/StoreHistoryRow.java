@@ -0,0 +1,20 @@
+package seol.study.springbatch.domain;
+
+import java.util.List;
+
+/**
+ * StoreHistory 를 만들기 위한 조회 전용 row. 엔티티를 로딩하지 않고 이름만 projection 으로 조회한다.
+ */
+public record StoreHistoryRow(Long storeId, String storeName, List<String> productNames, List<String> employeeNames) {
+
+    /**
+     * Querydsl 의 Projections.constructor 용. 이름 목록은 {@link #withNames(List, List)} 로 채운다.
+     */
+    public StoreHistoryRow(final Long storeId, final String storeName) {
+        this(storeId, storeName, List.of(), List.of());
+    }
+
+    public StoreHistoryRow withNames(final List<String> productNames, final List<String> employeeNames) {
+        return new StoreHistoryRow(storeId, storeName, List.copyOf(productNames), List.copyOf(employeeNames));
+    }
+}
@@ -0,0 +1,89 @@
+package seol.study.springbatch.domain;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.springframework.util.ClassUtils;
+import seol.study.springbatch.common.QuerydslPagingItemBatchSizeReader;
+
+import static seol.study.springbatch.domain.QEmployee.employee;
+import static seol.study.springbatch.domain.QProduct.product;
+import static seol.study.springbatch.domain.QStore.store;
+
+/**
+ * Store 엔티티 대신 {@link StoreHistoryRow} 를 읽는 Reader. <br/>
+ * - 1번 쿼리: store id/name 을 keyset 페이징으로 조회 <br/>
+ * - 2, 3번 쿼리: 해당 페이지 store id 의 product/employee 이름만 in 절로 조회해서 합친다 <br/>
+ * 페이지당 쿼리는 항상 3번이고, 영속성 컨텍스트에 엔티티가 남지 않는다. (transacted 여부와 상관없이 detach 할 것이 없다)
+ */
+public class StoreHistoryRowItemReader extends QuerydslPagingItemBatchSizeReader<StoreHistoryRow> {
+
+    public StoreHistoryRowItemReader(final EntityManagerFactory entityManagerFactory,
+                                     final int pageSize,
+                                     final Predicate... where) {
+        super(entityManagerFactory, pageSize, queryFactory -> queryFactory
+                .select(Projections.constructor(StoreHistoryRow.class, store.id, store.name))
+                .from(store)
+                .where(where));
+        setName(ClassUtils.getShortName(StoreHistoryRowItemReader.class));
+        setKeysetPaging(store.id, StoreHistoryRow::storeId);
+    }
+
+    /**
+     * StoreHistoryRow 는 엔티티가 아니므로 detach 하지 않는다. (EntityManager.detach 는 엔티티가 아니면 IllegalArgumentException)
+     */
+    @Override
+    protected void detach(final EntityManager owner, final StoreHistoryRow item) {
+    }
+
+    @Override
+    protected void afterPageFilled() {
+        super.afterPageFilled();
+        if (results.isEmpty()) {
+            return;
+        }
+
+        final List<Long> storeIds = new ArrayList<>(results.size());
+        for (final StoreHistoryRow row : results) {
+            storeIds.add(row.storeId());
+        }
+
+        final JPAQueryFactory queryFactory = new JPAQueryFactory(getEntityManager());
+        final Map<Long, List<String>> productNames = fetchNames(queryFactory, storeIds, product, product.store.id, product.name, product.id);
+        final Map<Long, List<String>> employeeNames = fetchNames(queryFactory, storeIds, employee, employee.store.id, employee.name, employee.id);
+
+        for (int i = 0; i < results.size(); i++) {
+            final StoreHistoryRow row = results.get(i);
+            results.set(i, row.withNames(
+                    productNames.getOrDefault(row.storeId(), List.of()),
+                    employeeNames.getOrDefault(row.storeId(), List.of())));
+        }
+    }
+
+    private Map<Long, List<String>> fetchNames(final JPAQueryFactory queryFactory, final List<Long> storeIds,
+                                               final EntityPath<?> from, final NumberPath<Long> storeIdPath, final StringPath namePath,
+                                               final NumberPath<Long> orderPath) {
+        final List<Tuple> tuples = queryFactory
+                .select(storeIdPath, namePath)
+                .from(from)
+                .where(storeIdPath.in(storeIds))
+                .orderBy(orderPath.asc())
+                .fetch();
+
+        final Map<Long, List<String>> names = new HashMap<>();
+        for (final Tuple tuple : tuples) {
+            names.computeIfAbsent(tuple.get(storeIdPath), id -> new ArrayList<>()).add(tuple.get(namePath));
+        }
+        return names;
+    }
+}
@@ -2,11 +2,25 @@ package seol.study.springbatch.domain;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.springframework.stereotype.Service;
+import seol.study.springbatch.common.CollectionPreloader;
+import seol.study.springbatch.common.ReadWriteRoutingDataSource;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 @Slf4j
@@ -18,9 +32,17 @@ public class StoreReadService {
     private final EntityManagerFactory entityManagerFactory;
 //    private final EntityManager entityManager;
 
+    /**
+     * 직접 연 EntityManager 의 트랜잭션은 replica 로 보낸다. (ReadWriteRoutingDataSource 가 있을 때) <br/>
+     * 호출하는 쪽 트랜잭션이 primary 커넥션을 잡고 있어도 primary 커넥션을 하나 더 쓰지 않는다.
+     */
     //    @Transactional(readOnly = true)
 //    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public List<Store> find() {
+        return ReadWriteRoutingDataSource.onReplica(this::findInNewEntityManager);
+    }
+
+    private List<Store> findInNewEntityManager() {
         final var entityManager = entityManagerFactory.createEntityManager();
         final EntityTransaction tx = entityManager.getTransaction();
         tx.begin();
@@ -48,4 +70,86 @@ public class StoreReadService {
         entityManager.close();
         return stores;
     }
+
+    /**
+     * 모든 Store 를 forward-only 커서로 하나씩 흘려보낸다. 전체를 List 로 만들지 않으므로 Store 수와 상관없이 메모리가 일정하다.
+     * <p>
+     * - function 이 끝나면 커서/트랜잭션/EntityManager 를 닫는다. (Stream 을 밖으로 반환하지 않는다) <br/>
+     * - 커서에서 fetchSize 건씩 window 로 읽고, window 의 products/employees 를 {@link CollectionPreloader} 로 IN 쿼리 2번에 초기화한 뒤 흘려보낸다.
+     * (커서로 하나씩 꺼내면 lazy 로딩 시점에 초기화 안 된 컬렉션이 현재 Store 것뿐이라 batch fetch 가 묶을 것이 없다) <br/>
+     * - 다음 window 를 읽기 전에 영속성 컨텍스트를 clear 한다. 이미 지나간 Store 는 detach 되므로 sorted()/collect(toList()) 처럼 모아두는 연산에는 쓰지 않는다. <br/>
+     * - 전체 쿼리 수는 1 + (window 수 x 2) 다. <br/>
+     * - read-only 로 조회하므로 스냅샷을 만들지 않고 2차 캐시도 채우지 않는다. replica 가 있으면 replica 에서 조회한다. <br/>
+     * (MySQL 은 useCursorFetch=true 여야 fetchSize 단위로 가져온다)
+     */
+    public <R> R stream(final int fetchSize, final Function<Stream<Store>, R> function) {
+        return ReadWriteRoutingDataSource.onReplica(() -> streamInNewEntityManager(fetchSize, function));
+    }
+
+    private <R> R streamInNewEntityManager(final int fetchSize, final Function<Stream<Store>, R> function) {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        final EntityTransaction tx = entityManager.getTransaction();
+        try {
+            tx.begin();
+            final Session session = entityManager.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setCacheMode(CacheMode.IGNORE);
+
+            try (ScrollableResults results = session.createQuery("SELECT s FROM Store s ORDER BY s.id", Store.class)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+                 Stream<Store> stores = StreamSupport.stream(new StoreSpliterator(session, results, fetchSize), false)) {
+                final R result = function.apply(stores);
+                tx.commit();
+                return result;
+            }
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    /**
+     * window 가 비면 이전 Store 들을 영속성 컨텍스트에서 비우고, 커서에서 fetchSize 건을 읽어 컬렉션을 초기화한다.
+     */
+    private static final class StoreSpliterator extends Spliterators.AbstractSpliterator<Store> {
+        private final Session session;
+        private final ScrollableResults results;
+        private final int fetchSize;
+        private final CollectionPreloader<Store> collectionPreloader = new CollectionPreloader<>(Store.class, "products", "employees");
+        private final List<Store> window;
+        private int next;
+
+        StoreSpliterator(final Session session, final ScrollableResults results, final int fetchSize) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.session = session;
+            this.results = results;
+            this.fetchSize = fetchSize;
+            this.window = new ArrayList<>(fetchSize);
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super Store> action) {
+            if (next == window.size() && !readWindow()) {
+                return false;
+            }
+            action.accept(window.get(next++));
+            return true;
+        }
+
+        private boolean readWindow() {
+            window.clear();
+            next = 0;
+            session.clear();
+            while (window.size() < fetchSize && results.next()) {
+                window.add((Store) results.get(0));
+            }
+            collectionPreloader.preload(session, window);
+            return !window.isEmpty();
+        }
+    }
 }
\ No newline at end of file
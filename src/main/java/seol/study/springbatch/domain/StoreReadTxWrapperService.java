@@ -17,17 +17,33 @@ import java.util.stream.Collectors;
 public class StoreReadTxWrapperService {
 
     private final StoreReadService storeReadService;
+    private final StoreRepository storeRepository;
     private final EntityManager entityManager;
     private final PlatformTransactionManager transactionManager;
 
-    //    @Transactional
+    /**
+     * 상품 가격 합계를 DB 에서 집계한다. (엔티티를 로딩하지 않는다)
+     */
     public long find() {
-        final var transactionStatus = transactionManager.getTransaction(new DefaultTransactionAttribute() {
+        final StoreAggregate aggregate = storeRepository.aggregateProductSumAndEmployeeNames();
+        log.info("productSum: {}", aggregate.productSum());
+        log.info("names: {}", aggregate.employeeNames());
+        return aggregate.productSum();
+    }
+
+    /**
+     * Store 그래프를 전부 로딩해서 집계하던 기존 방식. {@link #find()} 와 결과가 같은지 확인하는 용도로 남겨둔다.
+     */
+    //    @Transactional
+    public StoreAggregate findByEntities() {
+        final DefaultTransactionAttribute transactionAttribute = new DefaultTransactionAttribute() {
             @Override
             public boolean rollbackOn(final Throwable ex) {
                 return true;
             }
-        });
+        };
+        transactionAttribute.setReadOnly(true); // 조회만 하므로 replica 로 보낸다 (ReadWriteRoutingDataSource)
+        final var transactionStatus = transactionManager.getTransaction(transactionAttribute);
         final var stores = storeReadService.find();
         final long productSum = stores.stream()
                 .map(Store::getProducts)
@@ -45,6 +61,21 @@ public class StoreReadTxWrapperService {
 
 
         transactionManager.commit(transactionStatus);
+        return new StoreAggregate(productSum, names);
+    }
+
+    /**
+     * find() 와 같은 집계를 커서로 한다. Store 그래프 전체를 메모리에 올리지 않는다.
+     */
+    public long findStreaming(final int fetchSize) {
+        final long[] employeeCount = {0};
+        final long productSum = storeReadService.stream(fetchSize, stores -> stores
+                .peek(store -> employeeCount[0] += store.getEmployees().size())
+                .flatMap(store -> store.getProducts().stream())
+                .mapToLong(Product::getPrice)
+                .sum());
+        log.info("productSum: {}", productSum);
+        log.info("employeeCount: {}", employeeCount[0]);
         return productSum;
     }
 
@@ -2,14 +2,22 @@ package seol.study.springbatch.domain;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 import java.util.List;
 
-public interface StoreRepository extends JpaRepository<Store, Long> {
+public interface StoreRepository extends JpaRepository<Store, Long>, StoreRepositoryCustom {
 
-    @Query("SELECT s " +
+    /**
+     * employees 만 fetch join 한다. products 까지 필요하면 {@link #findAllWithProductsAndEmployees()} <br/>
+     * (DISTINCT 가 없으면 Store 가 직원 수만큼 중복되어 합계가 부풀려진다)
+     */
+    @Query("SELECT DISTINCT s " +
             "FROM Store s " +
 //            "JOIN FETCH s.products " +
-            "JOIN FETCH s.employees")
+            "LEFT JOIN FETCH s.employees")
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true")) // hibernate.cache.use_query_cache 일 때만 캐시
     List<Store> findAllByFetchJoin();
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package seol.study.springbatch.domain;
+
+import java.util.List;
+
+public interface StoreRepositoryCustom {
+
+    /**
+     * products/employees 가 모두 초기화된 Store 목록. (Store 1번 + 컬렉션마다 1번 조회)
+     */
+    List<Store> findAllWithProductsAndEmployees();
+
+    /**
+     * 상품 가격 합계(SUM)와 직원 이름(projection)만 DB 에서 조회한다. 엔티티를 만들지 않는다.
+     */
+    StoreAggregate aggregateProductSumAndEmployeeNames();
+}
@@ -0,0 +1,58 @@
+package seol.study.springbatch.domain;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+import seol.study.springbatch.common.CollectionPreloader;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static seol.study.springbatch.domain.QEmployee.employee;
+import static seol.study.springbatch.domain.QProduct.product;
+import static seol.study.springbatch.domain.QStore.store;
+
+/**
+ * List(bag) 컬렉션 2개는 한번에 fetch join 할 수 없고(MultipleBagFetchException), Set 으로 바꿔도 products x employees 만큼 row 가 늘어난다. <br/>
+ * 그래서 Store 를 먼저 조회하고, 같은 영속성 컨텍스트에서 컬렉션마다 IN 쿼리로 채운다. <br/>
+ * - 쿼리 수 = 1 + 컬렉션 수 x (1000 개씩 나눈 id 묶음 수) <br/>
+ * - row 수 = Store + products + employees (컬렉션이 빈 Store 는 LEFT JOIN 으로 1 row 씩 더해진다) <br/>
+ * 반환된 Store 는 트랜잭션이 끝나 detach 되어도 컬렉션이 초기화되어 있다.
+ */
+@RequiredArgsConstructor
+public class StoreRepositoryImpl implements StoreRepositoryCustom {
+
+    private static final int IN_CLAUSE_SIZE = 1000;
+
+    private final EntityManager entityManager;
+    private final CollectionPreloader<Store> collectionPreloader = new CollectionPreloader<>(Store.class, "products", "employees");
+
+    @Override
+    @Transactional(readOnly = true)
+    public StoreAggregate aggregateProductSumAndEmployeeNames() {
+        final JPAQueryFactory queryFactory = new JPAQueryFactory(entityManager);
+        final Long productSum = queryFactory
+                .select(product.price.sum())
+                .from(store)
+                .join(store.products, product)
+                .fetchOne();
+        final List<String> employeeNames = queryFactory
+                .select(employee.name)
+                .from(store)
+                .join(store.employees, employee)
+                .orderBy(store.id.asc(), employee.id.asc())
+                .fetch();
+        return new StoreAggregate(productSum == null ? 0L : productSum, employeeNames);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Store> findAllWithProductsAndEmployees() {
+        final List<Store> stores = entityManager.createQuery("SELECT s FROM Store s ORDER BY s.id", Store.class)
+                .getResultList();
+        for (int from = 0; from < stores.size(); from += IN_CLAUSE_SIZE) {
+            collectionPreloader.preload(entityManager, stores.subList(from, Math.min(from + IN_CLAUSE_SIZE, stores.size())));
+        }
+        return stores;
+    }
+}
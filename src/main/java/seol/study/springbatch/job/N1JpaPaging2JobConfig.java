@@ -1,8 +1,15 @@
 package seol.study.springbatch.job;
 
-import java.util.Objects;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.Job;
@@ -11,19 +18,36 @@ import org.springframework.batch.core.configuration.annotation.JobBuilderFactory
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.integration.async.AsyncItemProcessor;
+import org.springframework.batch.integration.async.AsyncItemWriter;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.database.JpaItemWriter;
-import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import seol.study.springbatch.common.CollectionPreloader;
+import seol.study.springbatch.common.JpaInsertOnlyItemWriter;
+import seol.study.springbatch.common.JpaPagingIdFetchJoinItemReader;
+import seol.study.springbatch.common.QuerydslIdRangePartitioner;
 import seol.study.springbatch.common.QuerydslPagingItemBatchSizeReader;
 import seol.study.springbatch.common.QuerydslPagingItemWithN1Reader;
+import seol.study.springbatch.common.SecondLevelCacheStatisticsListener;
+import seol.study.springbatch.domain.Employee;
+import seol.study.springbatch.domain.Product;
 import seol.study.springbatch.domain.QStore;
 import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreDataGenerator;
+import seol.study.springbatch.domain.StoreDataSpec;
 import seol.study.springbatch.domain.StoreHistory;
+import seol.study.springbatch.domain.StoreHistoryJdbcBatchItemWriter;
+import seol.study.springbatch.domain.StoreHistoryNamesCodec;
+import seol.study.springbatch.domain.StoreHistoryRow;
+import seol.study.springbatch.domain.StoreHistoryRowItemReader;
 import seol.study.springbatch.domain.StoreWriteService;
 
 
@@ -39,46 +63,233 @@ public class N1JpaPaging2JobConfig {
     private final StepBuilderFactory stepBuilderFactory;
     private final EntityManagerFactory entityManagerFactory;
     private final StoreWriteService storeWriteService;
+    private final StoreDataGenerator storeDataGenerator;
     private final EntityManager entityManager;
+    private final DataSource dataSource;
 
     private int chunkSize;
+    private JpaInsertOnlyItemWriter.Mode writeMode;
+    private int gridSize;
+    private int threadCount;
+    private int asyncThreadCount;
+    private boolean compactHistory;
+    private boolean secondLevelCache;
+    private boolean readFromReplica;
+    private boolean projectionReader;
+
+    /**
+     * StoreHistory 저장 방식. 없으면 JDBC batch(upsert), PERSIST/STATELESS 면 {@link JpaInsertOnlyItemWriter} <br/>
+     * PERSIST/STATELESS 는 이미 백업한 snapshotDate 를 덮어쓰지 못한다. (재시작만 가능. threadCount > 1 이면 saveState 가 false 라 재시작도 처음부터 읽어서 실패한다)
+     */
+    @Value("${writeMode:#{null}}")
+    public void setWriteMode(final JpaInsertOnlyItemWriter.Mode writeMode) {
+        this.writeMode = writeMode;
+    }
 
     @Value("${chunkSize:100}")
     public void setChunkSize(final int chunkSize) {
         this.chunkSize = chunkSize;
     }
 
+    @Value("${gridSize:4}")
+    public void setGridSize(final int gridSize) {
+        this.gridSize = gridSize;
+    }
+
+    /**
+     * 1 보다 크면 workerStep 을 멀티 스레드 Step 으로 실행한다. (Reader 의 saveState 는 false)
+     */
+    @Value("${threadCount:1}")
+    public void setThreadCount(final int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * 0 보다 크면 Processor 를 AsyncItemProcessor 로 감싸 이 스레드 수만큼 병렬로 처리한다. (Writer 는 AsyncItemWriter 가 순서대로 Future 를 푼다)
+     */
+    @Value("${asyncThreadCount:0}")
+    public void setAsyncThreadCount(final int asyncThreadCount) {
+        this.asyncThreadCount = asyncThreadCount;
+    }
+
+    /**
+     * true 면 StoreHistory 의 이름 목록을 압축 포맷({@link StoreHistoryNamesCodec})으로 저장한다.
+     */
+    @Value("${compactHistory:false}")
+    public void setCompactHistory(final boolean compactHistory) {
+        this.compactHistory = compactHistory;
+    }
+
+    /**
+     * true 면 workerStep 의 Reader 가 2차 캐시를 사용한다. (hibernate.cache.use_second_level_cache 도 같은 프로퍼티로 켜진다)
+     */
+    @Value("${secondLevelCache:false}")
+    public void setSecondLevelCache(final boolean secondLevelCache) {
+        this.secondLevelCache = secondLevelCache;
+    }
+
+    /**
+     * true 면 workerStep 의 Reader 가 replica 에서 조회한다. (spring.datasource.replica.enabled=true 일 때만 의미가 있다) <br/>
+     * 기본은 false. initData 가 같은 Job 에서 방금 primary 에 넣은 데이터를 읽고, partitioner 의 min/max id 도 primary 에서 구하므로
+     * replica 지연이 있으면 빠지는 Store 가 생긴다. 데이터가 미리 복제되어 있을 때만 켠다.
+     */
+    @Value("${readFromReplica:false}")
+    public void setReadFromReplica(final boolean readFromReplica) {
+        this.readFromReplica = readFromReplica;
+    }
+
+    /**
+     * true 면 workerStep 이 엔티티 대신 {@link StoreHistoryRowItemReader} 로 이름 목록만 읽는다. (asyncThreadCount 는 무시된다. lazy 로딩이 없다)
+     */
+    @Value("${projectionReader:false}")
+    public void setProjectionReader(final boolean projectionReader) {
+        this.projectionReader = projectionReader;
+    }
+
     @Bean(name = JOB_NAME)
     public Job job() {
         return jobBuilderFactory.get(JOB_NAME)
-                .start(initData())
+                .start(initData(null, null, null, null, null))
                 .next(step())
                 .build();
     }
 
+    /**
+     * 테스트 데이터 생성. <br/>
+     * - storeCount 가 없으면 기존 고정 데이터 (서울시 강남구 Store 2개, Product/Employee 2개씩. {@link StoreWriteService}) <br/>
+     * - storeCount 가 있으면 나머지 Job Parameter 로 {@link StoreDataGenerator} 가 만든다
+     */
     @Bean(name = JOB_NAME + "_initData")
-    Step initData() {
+    @JobScope
+    Step initData(@Value("#{jobParameters[storeCount]}") final Long storeCount,
+                  @Value("#{jobParameters[productsPerStore]}") final Long productsPerStore,
+                  @Value("#{jobParameters[employeesPerStore]}") final Long employeesPerStore,
+                  @Value("#{jobParameters[distribution]}") final String distribution,
+                  @Value("#{jobParameters[seed]}") final Long seed) {
+        final StoreDataSpec.StoreDataSpecBuilder spec = StoreDataSpec.builder();
+        if (storeCount != null) {
+            spec.storeCount(storeCount.intValue());
+        }
+        if (productsPerStore != null) {
+            spec.productsPerStore(productsPerStore.intValue());
+        }
+        if (employeesPerStore != null) {
+            spec.employeesPerStore(employeesPerStore.intValue());
+        }
+        if (distribution != null) {
+            spec.distribution(StoreDataSpec.Distribution.valueOf(distribution));
+        }
+        if (seed != null) {
+            spec.seed(seed);
+        }
+
         return stepBuilderFactory.get(JOB_NAME + "_initData")
                 .tasklet((contribution, chunkContext) -> {
-                    storeWriteService.saveTestData();
+                    if (storeCount == null) {
+                        storeWriteService.saveTestData();
+                    } else {
+                        storeDataGenerator.generate(spec.build());
+                    }
                     return RepeatStatus.FINISHED;
                 })
                 .build();
     }
 
+    /**
+     * id 범위로 나눈 파티션마다 workerStep 을 taskExecutor 에서 병렬로 실행한다.
+     */
     @Bean(name = JOB_NAME + "_step")
     @JobScope
     public Step step() {
         return stepBuilderFactory.get(JOB_NAME + "_step")
-                .<Store, StoreHistory>chunk(chunkSize)
-                .reader(getAppliedBatchSizeReader(null))
-//                .reader(getN1Reader(null))
-                .processor(processor())
-                .writer(writer())
+                .partitioner(JOB_NAME + "_workerStep", partitioner(null))
+                .step(workerStep())
+                .gridSize(gridSize)
+                .taskExecutor(taskExecutor())
                 .allowStartIfComplete(true)
                 .build();
     }
 
+    @Bean(name = JOB_NAME + "_workerStep")
+    public Step workerStep() {
+        final SimpleStepBuilder<?, ?> builder;
+        if (projectionReader) {
+            builder = stepBuilderFactory.get(JOB_NAME + "_workerStep")
+                    .<StoreHistoryRow, StoreHistory>chunk(chunkSize)
+                    .reader(getStoreHistoryRowReader(null, null, null))
+                    .processor(rowProcessor(null))
+                    .writer(writer());
+        } else if (asyncThreadCount > 0) {
+            builder = stepBuilderFactory.get(JOB_NAME + "_workerStep")
+                    .<Store, Future<StoreHistory>>chunk(chunkSize)
+                    .reader(getAppliedBatchSizeReader(null, null, null))
+                    .processor(asyncProcessor(null))
+                    .writer(asyncWriter());
+        } else {
+            builder = stepBuilderFactory.get(JOB_NAME + "_workerStep")
+                    .<Store, StoreHistory>chunk(chunkSize)
+                    .reader(getAppliedBatchSizeReader(null, null, null))
+//                    .reader(getN1Reader(null, null, null))
+                    .processor(processor(null))
+                    .writer(writer());
+        }
+        builder.listener(secondLevelCacheStatisticsListener())
+                .allowStartIfComplete(true);
+
+        if (threadCount > 1) {
+            builder.taskExecutor(chunkTaskExecutor())
+                    .throttleLimit(threadCount);
+        }
+        return builder.build();
+    }
+
+    @Bean(name = JOB_NAME + "_secondLevelCacheStatisticsListener")
+    public SecondLevelCacheStatisticsListener secondLevelCacheStatisticsListener() {
+        return new SecondLevelCacheStatisticsListener(entityManagerFactory,
+                Store.CACHE_REGION, Store.PRODUCTS_CACHE_REGION, Store.EMPLOYEES_CACHE_REGION, Product.CACHE_REGION, Employee.CACHE_REGION);
+    }
+
+    @Bean(name = JOB_NAME + "_partitioner")
+    @JobScope
+    public QuerydslIdRangePartitioner partitioner(@Value("#{jobParameters[address]}") final String address) {
+        return new QuerydslIdRangePartitioner(entityManagerFactory, QStore.store.id, queryFactory -> queryFactory
+                .from(QStore.store)
+                .where(QStore.store.address.like(address + "%")));
+    }
+
+    @Bean(name = JOB_NAME + "_taskExecutor")
+    public TaskExecutor taskExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(gridSize);
+        executor.setMaxPoolSize(gridSize);
+        executor.setThreadNamePrefix(JOB_NAME + "-partition-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    @Bean(name = JOB_NAME + "_processorTaskExecutor")
+    public TaskExecutor processorTaskExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(asyncThreadCount, 1));
+        executor.setMaxPoolSize(Math.max(asyncThreadCount, 1));
+        // chunk 하나 분량까지만 쌓고, 넘치면 chunk 스레드가 직접 처리한다
+        executor.setQueueCapacity(chunkSize);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix(JOB_NAME + "-processor-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    @Bean(name = JOB_NAME + "_chunkTaskExecutor")
+    public TaskExecutor chunkTaskExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threadCount);
+        executor.setMaxPoolSize(threadCount);
+        executor.setThreadNamePrefix(JOB_NAME + "-chunk-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
     // JpaPagingItemReader
 //    @Bean(name = JOB_NAME + "_reader")
 //    @StepScope
@@ -120,29 +331,94 @@ public class N1JpaPaging2JobConfig {
     // QuerydslPagingItemV1Reader
     @Bean(name = JOB_NAME + "BatchSizeReader")
     @StepScope
-    public QuerydslPagingItemBatchSizeReader<Store> getAppliedBatchSizeReader(@Value("#{jobParameters[address]}") final String address) {
-        return new QuerydslPagingItemBatchSizeReader<>(entityManagerFactory, chunkSize, queryFactory -> {
+    public QuerydslPagingItemBatchSizeReader<Store> getAppliedBatchSizeReader(@Value("#{jobParameters[address]}") final String address,
+                                                                              @Value("#{stepExecutionContext[minId]}") final Long minId,
+                                                                              @Value("#{stepExecutionContext[maxId]}") final Long maxId) {
+        final var reader = new QuerydslPagingItemBatchSizeReader<Store>(entityManagerFactory, chunkSize, queryFactory -> {
             // 요청 시간 기준으로 만료 기간이 지났지만, "적립" 포인트가 남아있는 경우 조회
             return queryFactory
                     .selectFrom(QStore.store)
-                    .where(QStore.store.address.like(address + "%"));
+                    .where(QStore.store.address.like(address + "%"),
+                            idBetween(minId, maxId));
         });
+        reader.setKeysetPaging(QStore.store.id, Store::getId);
+        reader.setSaveState(threadCount <= 1);
+        reader.setUseSecondLevelCache(secondLevelCache);
+        reader.setReadFromReplica(readFromReplica);
+        reader.setReadOnly(true); // processor 는 Store 를 읽기만 한다
+        // 페이지마다 products/employees IN 쿼리 2번. processor 가 lazy 로딩 없이 컬렉션을 읽는다
+        reader.setCollectionPreloader(new CollectionPreloader<>(Store.class, "products", "employees"));
+        return reader;
     }
 
     // QuerydslPagingItemV2Reader
     @Bean(name = JOB_NAME + "N1Reader")
     @StepScope
-    public QuerydslPagingItemWithN1Reader<Store> getN1Reader(@Value("#{jobParameters[address]}") final String address) {
+    public QuerydslPagingItemWithN1Reader<Store> getN1Reader(@Value("#{jobParameters[address]}") final String address,
+                                                             @Value("#{stepExecutionContext[minId]}") final Long minId,
+                                                             @Value("#{stepExecutionContext[maxId]}") final Long maxId) {
         final var querydslPagingItemV2Reader = new QuerydslPagingItemWithN1Reader<Store>(
             entityManagerFactory, chunkSize, queryFactory -> {
             // 요청 시간 기준으로 만료 기간이 지났지만, "적립" 포인트가 남아있는 경우 조회
             return queryFactory
                 .selectFrom(QStore.store)
-                .where(QStore.store.address.like(address + "%"));
+                .where(QStore.store.address.like(address + "%"),
+                    idBetween(minId, maxId));
         });
+        querydslPagingItemV2Reader.setSaveState(threadCount <= 1);
+        querydslPagingItemV2Reader.setUseSecondLevelCache(secondLevelCache);
+        querydslPagingItemV2Reader.setReadFromReplica(readFromReplica);
+        querydslPagingItemV2Reader.setReadOnly(true);
+        // 페이지마다 products/employees IN 쿼리 2번 (processor 의 lazy 로딩이 batch fetch 설정에 의존하지 않는다)
+        querydslPagingItemV2Reader.setCollectionPreloader(new CollectionPreloader<>(Store.class, "products", "employees"));
         return querydslPagingItemV2Reader;
     }
 
+    /**
+     * 파티션으로 실행되지 않으면(minId/maxId 가 없으면) 조건을 추가하지 않는다.
+     */
+    private BooleanExpression idBetween(final Long minId, final Long maxId) {
+        if (minId == null || maxId == null) {
+            return null;
+        }
+        return QStore.store.id.between(minId, maxId);
+    }
+
+    // JpaPagingIdFetchJoinItemReader
+    @Bean(name = JOB_NAME + "IdFetchJoinReader")
+    @StepScope
+    public JpaPagingIdFetchJoinItemReader<Store> getIdFetchJoinReader(@Value("#{jobParameters[address]}") final String address) {
+        final Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("address", address + "%");
+
+        final JpaPagingIdFetchJoinItemReader<Store> reader = new JpaPagingIdFetchJoinItemReader<>();
+        reader.setEntityManagerFactory(entityManagerFactory);
+        reader.setIdQueryString("SELECT s.id FROM Store s WHERE s.address LIKE :address ORDER BY s.id");
+        reader.setFetchQueryStrings(List.of(
+                "SELECT DISTINCT s FROM Store s LEFT JOIN FETCH s.products WHERE s.id IN (:ids)",
+                "SELECT DISTINCT s FROM Store s LEFT JOIN FETCH s.employees WHERE s.id IN (:ids)"));
+        reader.setParameterValues(parameters);
+        reader.setPageSize(chunkSize);
+        reader.setUseSecondLevelCache(secondLevelCache);
+        reader.setReadFromReplica(readFromReplica);
+        reader.setReadOnly(true); // processor 는 Store 를 읽기만 한다
+        return reader;
+    }
+
+    // StoreHistoryRowItemReader (엔티티 없이 projection 으로 조회. processor 는 rowProcessor)
+    @Bean(name = JOB_NAME + "StoreHistoryRowReader")
+    @StepScope
+    public StoreHistoryRowItemReader getStoreHistoryRowReader(@Value("#{jobParameters[address]}") final String address,
+                                                              @Value("#{stepExecutionContext[minId]}") final Long minId,
+                                                              @Value("#{stepExecutionContext[maxId]}") final Long maxId) {
+        final StoreHistoryRowItemReader reader = new StoreHistoryRowItemReader(entityManagerFactory, chunkSize,
+                QStore.store.address.like(address + "%"),
+                idBetween(minId, maxId));
+        reader.setSaveState(threadCount <= 1);
+        reader.setReadFromReplica(readFromReplica);
+        return reader;
+    }
+
     // QuerydslCursorItemReader
 //    @Bean
 //    @StepScope
@@ -175,27 +451,68 @@ public class N1JpaPaging2JobConfig {
 
     @Bean(name = JOB_NAME + "_processor")
     @StepScope
-    public ItemProcessor<Store, StoreHistory> processor() {
+    public ItemProcessor<Store, StoreHistory> processor(@Value("#{jobParameters[snapshotDate]}") final String snapshotDate) {
+        final LocalDate snapshot = snapshotDate(snapshotDate);
+        // products/employees 는 Reader 의 CollectionPreloader 가 이미 초기화했다. Reader 의 EntityManager 를 쓰지 않으므로 멀티 스레드 Step 에서도 동시에 처리된다
         return item -> {
             log.info("entityManager.isOpen()={}", entityManager.isOpen());
             log.info("entityManager.contains(item)={}", entityManager.contains(item));
 
-            if(Objects.nonNull(QuerydslPagingItemWithN1Reader.entityManager)) {
-//            QuerydslPagingItemV2Reader.entityManager.close();
-//            log.info("QuerydslPagingItemV2Reader.entityManager.isOpen()={}", QuerydslPagingItemV2Reader.entityManager.isOpen());
-//            log.info("QuerydslPagingItemV2Reader.entityManager.contains={}", QuerydslPagingItemV2Reader.entityManager.contains(item));
-            }
-            final var storeHistory = new StoreHistory(item, item.getProducts(),
-                item.getEmployees());
+            final var storeHistory = toStoreHistory(item, snapshot);
             log.info("storeHistory={}", storeHistory);
             return storeHistory;
         };
     }
 
-    public JpaItemWriter<StoreHistory> writer() {
-        return new JpaItemWriterBuilder<StoreHistory>()
-                .entityManagerFactory(entityManagerFactory)
-                .build();
+    /**
+     * projectionReader 용. row 에 이름 목록이 이미 있으므로 엔티티 조회 없이 바로 StoreHistory 를 만든다.
+     */
+    @Bean(name = JOB_NAME + "_rowProcessor")
+    @StepScope
+    public ItemProcessor<StoreHistoryRow, StoreHistory> rowProcessor(@Value("#{jobParameters[snapshotDate]}") final String snapshotDate) {
+        final LocalDate snapshot = snapshotDate(snapshotDate);
+        return row -> (compactHistory ? StoreHistory.compact(row) : new StoreHistory(row)).snapshotOn(snapshot);
+    }
+
+    /**
+     * Reader 의 CollectionPreloader 가 products/employees 를 이미 초기화했으므로, worker 스레드는 EntityManager 없이 item 을 바로 변환한다.
+     */
+    @Bean(name = JOB_NAME + "_asyncProcessor")
+    @StepScope
+    public AsyncItemProcessor<Store, StoreHistory> asyncProcessor(@Value("#{jobParameters[snapshotDate]}") final String snapshotDate) {
+        final LocalDate snapshot = snapshotDate(snapshotDate);
+        final AsyncItemProcessor<Store, StoreHistory> asyncItemProcessor = new AsyncItemProcessor<>();
+        asyncItemProcessor.setDelegate(item -> toStoreHistory(item, snapshot));
+        asyncItemProcessor.setTaskExecutor(processorTaskExecutor());
+        return asyncItemProcessor;
+    }
+
+    private StoreHistory toStoreHistory(final Store store, final LocalDate snapshotDate) {
+        if (compactHistory) {
+            return StoreHistory.compact(store, store.getProducts(), store.getEmployees()).snapshotOn(snapshotDate);
+        }
+        return new StoreHistory(store, store.getProducts(), store.getEmployees()).snapshotOn(snapshotDate);
+    }
+
+    /**
+     * StoreHistory 의 스냅샷 기준일. (yyyy-MM-dd, 없으면 오늘) 같은 기준일로 다시 실행하면 덮어쓴다. <br/>
+     * 단 writeMode(PERSIST/STATELESS)는 INSERT 만 하므로 같은 기준일의 새 실행은 unique key(store_id, snapshot_date) 위반으로 실패한다. (실패한 실행의 재시작은 커밋된 chunk 다음부터라 괜찮다)
+     */
+    private static LocalDate snapshotDate(final String snapshotDate) {
+        return snapshotDate == null ? LocalDate.now() : LocalDate.parse(snapshotDate);
+    }
+
+    public AsyncItemWriter<StoreHistory> asyncWriter() {
+        final AsyncItemWriter<StoreHistory> asyncItemWriter = new AsyncItemWriter<>();
+        asyncItemWriter.setDelegate(writer());
+        return asyncItemWriter;
+    }
+
+    public ItemWriter<StoreHistory> writer() {
+        if (writeMode != null) {
+            return new JpaInsertOnlyItemWriter<>(entityManagerFactory, writeMode);
+        }
+        return new StoreHistoryJdbcBatchItemWriter(entityManagerFactory, dataSource, chunkSize);
     }
 
 }
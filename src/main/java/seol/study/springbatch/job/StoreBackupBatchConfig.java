@@ -1,5 +1,6 @@
 package seol.study.springbatch.job;
 
+import com.querydsl.core.types.dsl.BooleanExpression;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.SessionFactory;
@@ -9,21 +10,42 @@ import org.springframework.batch.core.configuration.annotation.JobBuilderFactory
 import org.springframework.batch.core.configuration.annotation.JobScope;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.integration.async.AsyncItemProcessor;
+import org.springframework.batch.integration.async.AsyncItemWriter;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.HibernateCursorItemReader;
-import org.springframework.batch.item.database.JpaItemWriter;
 import org.springframework.batch.item.database.builder.HibernateCursorItemReaderBuilder;
-import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import seol.study.springbatch.common.EntityManagerPerItemProcessor;
+import seol.study.springbatch.common.HighWaterMarkJobListener;
+import seol.study.springbatch.common.JpaInsertOnlyItemWriter;
+import seol.study.springbatch.common.SecondLevelCacheStatisticsListener;
+import seol.study.springbatch.domain.Employee;
+import seol.study.springbatch.domain.Product;
 import seol.study.springbatch.domain.Store;
 import seol.study.springbatch.domain.StoreHistory;
+import seol.study.springbatch.domain.StoreHistoryJdbcBatchItemWriter;
+import seol.study.springbatch.domain.StoreHistoryNamesCodec;
+import seol.study.springbatch.domain.StoreHistoryRow;
+import seol.study.springbatch.domain.StoreHistoryRowItemReader;
 
 import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.LocalDate;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static seol.study.springbatch.domain.QStore.store;
 
 /**
  * Created by jojoldu@gmail.com on 2017. 10. 27.
@@ -37,25 +59,82 @@ import java.util.Map;
 public class StoreBackupBatchConfig {
 
     public static final String JOB_NAME = "storeBackupBatch";
-    private static int count = 0;
+    private static final AtomicInteger count = new AtomicInteger();
 
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
     private final EntityManagerFactory entityManagerFactory;
+    private final DataSource dataSource;
+    private final JobExplorer jobExplorer;
 
     private static String ADDRESS_PARAM = null;
 
     private int chunkSize;
+    private int asyncThreadCount;
+    private boolean compactHistory;
+    private JpaInsertOnlyItemWriter.Mode writeMode;
+    private boolean projectionReader;
+    private int failAfter;
+    private boolean readFromReplica;
+
+    /**
+     * StoreHistory 저장 방식. 없으면 JDBC batch(upsert), PERSIST/STATELESS 면 {@link JpaInsertOnlyItemWriter} <br/>
+     * PERSIST/STATELESS 는 이미 백업한 snapshotDate 를 덮어쓰지 못한다. (재시작만 가능)
+     */
+    @Value("${writeMode:#{null}}")
+    public void setWriteMode(final JpaInsertOnlyItemWriter.Mode writeMode) {
+        this.writeMode = writeMode;
+    }
 
     @Value("${chunkSize:10}")
     public void setChunkSize(final int chunkSize) {
         this.chunkSize = chunkSize;
     }
 
+    /**
+     * 0 보다 크면 Processor 를 AsyncItemProcessor 로 감싸 이 스레드 수만큼 병렬로 처리한다.
+     */
+    @Value("${asyncThreadCount:0}")
+    public void setAsyncThreadCount(final int asyncThreadCount) {
+        this.asyncThreadCount = asyncThreadCount;
+    }
+
+    /**
+     * true 면 StoreHistory 의 이름 목록을 압축 포맷({@link StoreHistoryNamesCodec})으로 저장한다.
+     */
+    @Value("${compactHistory:false}")
+    public void setCompactHistory(final boolean compactHistory) {
+        this.compactHistory = compactHistory;
+    }
+
+    /**
+     * true 면 엔티티 대신 {@link StoreHistoryRowItemReader} 로 이름 목록만 읽는다. (asyncThreadCount 는 무시된다. lazy 로딩이 없다)
+     */
+    @Value("${projectionReader:false}")
+    public void setProjectionReader(final boolean projectionReader) {
+        this.projectionReader = projectionReader;
+    }
+
+    /**
+     * 처리한 item 이 이 수를 넘으면 processor 가 예외를 던진다. (chunk 롤백 확인용. JVM 전체 누적, 0 이하면 던지지 않는다)
+     */
+    @Value("${failAfter:2}")
+    public void setFailAfter(final int failAfter) {
+        this.failAfter = failAfter;
+    }
+
+    /**
+     * true 면 asyncProcessor 가 item 마다 Store 를 다시 조회할 때 replica 를 사용한다. (spring.datasource.replica.enabled=true 일 때만 의미가 있다)
+     */
+    @Value("${readFromReplica:false}")
+    public void setReadFromReplica(final boolean readFromReplica) {
+        this.readFromReplica = readFromReplica;
+    }
 
     @Bean(name = JOB_NAME)
     public Job job() {
         return jobBuilderFactory.get(JOB_NAME)
+                .listener(highWaterMarkJobListener())
                 .start(step())
                 .build();
     }
@@ -63,11 +142,29 @@ public class StoreBackupBatchConfig {
     @Bean(name = JOB_NAME + "_step")
     @JobScope
     public Step step() {
+        if (projectionReader) {
+            return stepBuilderFactory.get(JOB_NAME + "_step")
+                    .<StoreHistoryRow, StoreHistory>chunk(chunkSize)
+                    .reader(rowReader(ADDRESS_PARAM, null, null))
+                    .processor(rowProcessor(null))
+                    .writer(writer())
+                    .build();
+        }
+        if (asyncThreadCount > 0) {
+            return stepBuilderFactory.get(JOB_NAME + "_step")
+                    .<Store, Future<StoreHistory>>chunk(chunkSize)
+                    .reader(reader(ADDRESS_PARAM, null, null))
+                    .processor(asyncProcessor(null))
+                    .writer(asyncWriter())
+                    .listener(secondLevelCacheStatisticsListener())
+                    .build();
+        }
         return stepBuilderFactory.get(JOB_NAME + "_step")
                 .<Store, StoreHistory>chunk(chunkSize)
-                .reader(reader(ADDRESS_PARAM))
-                .processor(processor())
+                .reader(reader(ADDRESS_PARAM, null, null))
+                .processor(processor(null))
                 .writer(writer())
+                .listener(secondLevelCacheStatisticsListener())
                 .build();
     }
 
@@ -128,14 +225,45 @@ public class StoreBackupBatchConfig {
 //        });
 //    }
 
+    /**
+     * Step 이 끝나면 Store/Product/Employee 캐시 region 의 hit/miss/put 을 로그로 남긴다. (hibernate.generate_statistics=true 일 때만)
+     */
+    @Bean(name = JOB_NAME + "_secondLevelCacheStatisticsListener")
+    public SecondLevelCacheStatisticsListener secondLevelCacheStatisticsListener() {
+        return new SecondLevelCacheStatisticsListener(entityManagerFactory,
+                Store.CACHE_REGION, Store.PRODUCTS_CACHE_REGION, Store.EMPLOYEES_CACHE_REGION, Product.CACHE_REGION, Employee.CACHE_REGION);
+    }
+
+    /**
+     * 매 실행의 시작 시각을 high-water mark 로 남긴다. (incremental=true 일 때 Reader 가 사용. address 마다 따로 찾는다)
+     */
+    @Bean(name = JOB_NAME + "_highWaterMarkJobListener")
+    public HighWaterMarkJobListener highWaterMarkJobListener() {
+        return new HighWaterMarkJobListener(jobExplorer, "address");
+    }
+
+    /**
+     * incremental=true 면 마지막으로 성공한 실행 이후 바뀐 Store 만 조회한다. (Store.lastModifiedAt) <br/>
+     * lastModifiedAt 컬럼이 생기기 전에 저장된 Store 는 값이 NULL 이므로 바뀐 것으로 보고 같이 조회한다. <br/>
+     * 재시작하면 커밋된 chunk 다음 Store 부터 읽는다. (id 순)
+     */
     @Bean(name = JOB_NAME + "_reader")
     @StepScope
-    public HibernateCursorItemReader<Store> reader(@Value("#{jobParameters[address]}") final String address) {
+    public HibernateCursorItemReader<Store> reader(@Value("#{jobParameters[address]}") final String address,
+                                                   @Value("#{jobParameters[incremental]}") final String incremental,
+                                                   @Value("#{jobExecutionContext[" + HighWaterMarkJobListener.SINCE + "]}") final String since) {
         final Map<String, Object> parameters = new LinkedHashMap<>();
         parameters.put("address", address + "%");
 
+        String queryString = "SELECT s FROM Store s WHERE s.address LIKE :address";
+        if (Boolean.parseBoolean(incremental) && since != null) {
+            queryString += " AND (s.lastModifiedAt >= :since OR s.lastModifiedAt IS NULL)";
+            parameters.put("since", HighWaterMarkJobListener.parse(since));
+        }
+        queryString += " ORDER BY s.id"; // 재시작은 read.count 만큼 건너뛰므로 실행마다 순서가 같아야 한다
+
         return new HibernateCursorItemReaderBuilder<Store>()
-                .queryString("SELECT s FROM Store s WHERE s.address LIKE :address")
+                .queryString(queryString)
                 .parameterValues(parameters)
                 .fetchSize(chunkSize)
                 .sessionFactory(entityManagerFactory.unwrap(SessionFactory.class))
@@ -144,6 +272,20 @@ public class StoreBackupBatchConfig {
                 .build();
     }
 
+    /**
+     * projectionReader 용. reader 와 같은 조건(address, incremental)으로 store id 순 keyset 페이징한다.
+     */
+    @Bean(name = JOB_NAME + "_rowReader")
+    @StepScope
+    public StoreHistoryRowItemReader rowReader(@Value("#{jobParameters[address]}") final String address,
+                                               @Value("#{jobParameters[incremental]}") final String incremental,
+                                               @Value("#{jobExecutionContext[" + HighWaterMarkJobListener.SINCE + "]}") final String since) {
+        final BooleanExpression modifiedSince = Boolean.parseBoolean(incremental) && since != null
+                ? store.lastModifiedAt.goe(HighWaterMarkJobListener.parse(since)).or(store.lastModifiedAt.isNull())
+                : null;
+        return new StoreHistoryRowItemReader(entityManagerFactory, chunkSize, store.address.like(address + "%"), modifiedSince);
+    }
+
 //    @Bean(name = JOB_NAME+"_reader")
 //    @StepScope
 //    public HibernatePagingItemReader<Store> reader(@Value("#{jobParameters[address]}") String address) {
@@ -158,22 +300,85 @@ public class StoreBackupBatchConfig {
 //                .build();
 //    }
 
-    @Bean(name = JOB_NAME + "_processor")
+    @Bean(name = JOB_NAME + "_rowProcessor")
     @StepScope
-    public ItemProcessor<Store, StoreHistory> processor() {
-        return item -> {
-            count++;
-            log.info("count={}", count);
-            if (count > 2) {
-                throw new IllegalStateException("야호");
-            }
-            return new StoreHistory(item, item.getProducts(), item.getEmployees());
+    public ItemProcessor<StoreHistoryRow, StoreHistory> rowProcessor(@Value("#{jobParameters[snapshotDate]}") final String snapshotDate) {
+        final LocalDate snapshot = snapshotDate(snapshotDate);
+        return row -> {
+            countProcessed();
+            return (compactHistory ? StoreHistory.compact(row) : new StoreHistory(row)).snapshotOn(snapshot);
         };
     }
 
-    public JpaItemWriter<StoreHistory> writer() {
-        return new JpaItemWriterBuilder<StoreHistory>()
-                .entityManagerFactory(entityManagerFactory)
-                .build();
+    @Bean(name = JOB_NAME + "_processor")
+    @StepScope
+    public ItemProcessor<Store, StoreHistory> processor(@Value("#{jobParameters[snapshotDate]}") final String snapshotDate) {
+        final LocalDate snapshot = snapshotDate(snapshotDate);
+        return item -> toStoreHistory(item, snapshot);
+    }
+
+    /**
+     * HibernateCursorItemReader 의 Session 은 thread-safe 하지 않으므로, worker 스레드는 item 마다 자기 EntityManager 에서 Store 를 다시 조회한다.
+     */
+    @Bean(name = JOB_NAME + "_asyncProcessor")
+    @StepScope
+    public AsyncItemProcessor<Store, StoreHistory> asyncProcessor(@Value("#{jobParameters[snapshotDate]}") final String snapshotDate) {
+        final LocalDate snapshot = snapshotDate(snapshotDate);
+        final AsyncItemProcessor<Store, StoreHistory> asyncItemProcessor = new AsyncItemProcessor<>();
+        final EntityManagerPerItemProcessor<Store, StoreHistory> delegate = new EntityManagerPerItemProcessor<>(entityManagerFactory, Store.class, Store::getId,
+                (entityManager, store) -> toStoreHistory(store, snapshot));
+        delegate.setReadFromReplica(readFromReplica);
+        asyncItemProcessor.setDelegate(delegate);
+        asyncItemProcessor.setTaskExecutor(processorTaskExecutor());
+        return asyncItemProcessor;
+    }
+
+    @Bean(name = JOB_NAME + "_processorTaskExecutor")
+    public TaskExecutor processorTaskExecutor() {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(asyncThreadCount, 1));
+        executor.setMaxPoolSize(Math.max(asyncThreadCount, 1));
+        executor.setQueueCapacity(chunkSize);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix(JOB_NAME + "-processor-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    private StoreHistory toStoreHistory(final Store item, final LocalDate snapshotDate) {
+        countProcessed();
+        if (compactHistory) {
+            return StoreHistory.compact(item, item.getProducts(), item.getEmployees()).snapshotOn(snapshotDate);
+        }
+        return new StoreHistory(item, item.getProducts(), item.getEmployees()).snapshotOn(snapshotDate);
+    }
+
+    private void countProcessed() {
+        final int current = count.incrementAndGet();
+        log.info("count={}", current);
+        if (failAfter > 0 && current > failAfter) {
+            throw new IllegalStateException("야호");
+        }
+    }
+
+    /**
+     * StoreHistory 의 스냅샷 기준일. (yyyy-MM-dd, 없으면 오늘) 같은 기준일로 다시 실행하면 덮어쓴다. <br/>
+     * 단 writeMode(PERSIST/STATELESS)는 INSERT 만 하므로 같은 기준일의 새 실행은 unique key(store_id, snapshot_date) 위반으로 실패한다. (실패한 실행의 재시작은 커밋된 chunk 다음부터라 괜찮다)
+     */
+    private static LocalDate snapshotDate(final String snapshotDate) {
+        return snapshotDate == null ? LocalDate.now() : LocalDate.parse(snapshotDate);
+    }
+
+    public AsyncItemWriter<StoreHistory> asyncWriter() {
+        final AsyncItemWriter<StoreHistory> asyncItemWriter = new AsyncItemWriter<>();
+        asyncItemWriter.setDelegate(writer());
+        return asyncItemWriter;
+    }
+
+    public ItemWriter<StoreHistory> writer() {
+        if (writeMode != null) {
+            return new JpaInsertOnlyItemWriter<>(entityManagerFactory, writeMode);
+        }
+        return new StoreHistoryJdbcBatchItemWriter(entityManagerFactory, dataSource, chunkSize);
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package seol.study.springbatch.common;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.Employee;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.QStore;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+class CollectionPreloaderTest {
+
+    private static final int STORE_COUNT = 25;
+    private static final int PAGE_SIZE = 10;
+    private static final int PAGES = 3; // 10 + 10 + 5
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("collectionPreloader 가 있으면 컬렉션 크기와 상관없이 페이지당 쿼리 수가 (페이지 조회 1 + 컬렉션 수) 로 일정하다")
+    void constantQueryCountPerPage() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final List<Store> stores = new ArrayList<>();
+        for (int i = 0; i < STORE_COUNT; i++) {
+            final Store store = new Store("서점" + i, "서울시 " + i);
+            for (int j = 0; j <= i % 4; j++) {
+                store.addProduct(new Product("책" + i + "-" + j, 10000L));
+                store.addEmployee(new Employee("직원" + i + "-" + j, LocalDate.now()));
+            }
+            stores.add(store);
+        }
+        storeRepository.saveAll(stores);
+
+        final CollectionPreloader<Store> preloader = new CollectionPreloader<>(Store.class, "products", "employees");
+        final QuerydslPagingItemBatchSizeReader<Store> reader = new QuerydslPagingItemBatchSizeReader<>(entityManagerFactory, PAGE_SIZE,
+                queryFactory -> queryFactory.selectFrom(QStore.store));
+        reader.setKeysetPaging(QStore.store.id, Store::getId);
+        reader.setReadOnly(true);
+        reader.setCollectionPreloader(preloader);
+        reader.afterPropertiesSet();
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when:
+        int read = 0;
+        int children = 0;
+        reader.open(new ExecutionContext());
+        try {
+            Store store;
+            while ((store = reader.read()) != null) {
+                read++;
+                children += store.getProducts().size() + store.getEmployees().size();
+            }
+        } finally {
+            reader.close();
+        }
+
+        // then:
+        assertThat(read).isEqualTo(STORE_COUNT);
+        assertThat(children).isPositive();
+        assertThat(preloader.getQueryCount()).isEqualTo(PAGES * 2L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(PAGES * 3L);
+    }
+}
@@ -0,0 +1,96 @@
+package seol.study.springbatch.common;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HighWaterMarkJobListenerTest {
+
+    private static final String JOB_NAME = "storeBackupBatch";
+
+    private final JobExplorer jobExplorer = mock(JobExplorer.class);
+    private final HighWaterMarkJobListener listener = new HighWaterMarkJobListener(jobExplorer, "address");
+
+    @Test
+    @DisplayName("address 가 다른 실행의 high-water mark 는 since 로 쓰지 않는다")
+    void scopedByAddress() {
+        // given:
+        final JobExecution seoul = completed(1L, 1L, "서울", "2024-01-01T10:00");
+        final JobExecution busanBefore = completed(2L, 2L, "부산", "2024-01-01T09:00");
+        registerInstances(seoul, busanBefore);
+
+        final JobExecution busan = MetaDataInstanceFactory.createJobExecution(JOB_NAME, 3L, 3L, parameters("부산", "2024-01-02"));
+
+        // when:
+        listener.beforeJob(busan);
+
+        // then:
+        assertThat(busan.getExecutionContext().getString(HighWaterMarkJobListener.SINCE)).isEqualTo("2024-01-01T09:00");
+    }
+
+    @Test
+    @DisplayName("같은 address 의 완료된 실행이 없으면 since 가 없다 (전체 조회)")
+    void noSinceWithoutSameScope() {
+        // given:
+        registerInstances(completed(1L, 1L, "서울", "2024-01-01T10:00"));
+        final JobExecution busan = MetaDataInstanceFactory.createJobExecution(JOB_NAME, 2L, 2L, parameters("부산", "2024-01-02"));
+
+        // when:
+        listener.beforeJob(busan);
+
+        // then:
+        assertThat(busan.getExecutionContext().containsKey(HighWaterMarkJobListener.SINCE)).isFalse();
+        assertThat(busan.getExecutionContext().containsKey(HighWaterMarkJobListener.HIGH_WATER_MARK)).isTrue();
+    }
+
+    @Test
+    @DisplayName("재시작이면 처음 실행의 since 와 high-water mark 를 그대로 쓴다")
+    void restartKeepsHighWaterMark() {
+        // given: 실패한 실행의 ExecutionContext 가 재시작 실행으로 넘어온다
+        final JobExecution restart = MetaDataInstanceFactory.createJobExecution(JOB_NAME, 1L, 2L, parameters("서울", "2024-01-02"));
+        restart.getExecutionContext().putString(HighWaterMarkJobListener.SINCE, "2024-01-01T10:00");
+        restart.getExecutionContext().putString(HighWaterMarkJobListener.HIGH_WATER_MARK, "2024-01-02T10:00");
+
+        // when:
+        listener.beforeJob(restart);
+
+        // then:
+        assertThat(restart.getExecutionContext().getString(HighWaterMarkJobListener.SINCE)).isEqualTo("2024-01-01T10:00");
+        assertThat(restart.getExecutionContext().getString(HighWaterMarkJobListener.HIGH_WATER_MARK)).isEqualTo("2024-01-02T10:00");
+    }
+
+    private void registerInstances(final JobExecution... executions) {
+        when(jobExplorer.getJobInstances(eq(JOB_NAME), eq(0), eq(20)))
+                .thenReturn(Arrays.stream(executions).map(JobExecution::getJobInstance).toList());
+        for (final JobExecution execution : executions) {
+            when(jobExplorer.getJobExecutions(execution.getJobInstance())).thenReturn(List.of(execution));
+        }
+    }
+
+    private static JobExecution completed(final Long instanceId, final Long executionId, final String address, final String highWaterMark) {
+        final JobExecution execution = MetaDataInstanceFactory.createJobExecution(JOB_NAME, instanceId, executionId, parameters(address, "2024-01-01"));
+        execution.setStatus(BatchStatus.COMPLETED);
+        execution.getExecutionContext().putString(HighWaterMarkJobListener.HIGH_WATER_MARK, highWaterMark);
+        return execution;
+    }
+
+    private static JobParameters parameters(final String address, final String snapshotDate) {
+        return new JobParametersBuilder()
+                .addString("address", address)
+                .addString("snapshotDate", snapshotDate)
+                .toJobParameters();
+    }
+}
@@ -0,0 +1,97 @@
+package seol.study.springbatch.common;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.Employee;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(OutputCaptureExtension.class)
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class JpaPagingIdFetchJoinItemReaderTest {
+
+    private static final int STORE_COUNT = 7;
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("id 쿼리 순서대로 DB 에서 페이징하고, 페이지의 Store 마다 두 컬렉션이 모두 초기화된다")
+    void pagesByIdQueryAndFetchesBothCollections(final CapturedOutput output) throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final List<Store> stores = new ArrayList<>();
+        for (int i = 0; i < STORE_COUNT; i++) {
+            final Store store = new Store("서점" + i, "서울시 " + i);
+            store.addProduct(new Product("책" + i + "_1", 10000L));
+            store.addProduct(new Product("책" + i + "_2", 20000L));
+            store.addEmployee(new Employee("직원" + i, LocalDate.now()));
+            stores.add(store);
+        }
+        final List<Long> idsDescending = storeRepository.saveAll(stores).stream()
+                .map(Store::getId)
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+
+        // IN 절 결과는 id 오름차순으로 나오기 쉬우므로 id 쿼리는 내림차순으로 한다
+        final JpaPagingIdFetchJoinItemReader<Store> reader = new JpaPagingIdFetchJoinItemReader<>();
+        reader.setEntityManagerFactory(entityManagerFactory);
+        reader.setIdQueryString("SELECT s.id FROM Store s WHERE s.address LIKE :address ORDER BY s.id DESC");
+        reader.setFetchQueryStrings(List.of(
+                "SELECT DISTINCT s FROM Store s LEFT JOIN FETCH s.products WHERE s.id IN (:ids)",
+                "SELECT DISTINCT s FROM Store s LEFT JOIN FETCH s.employees WHERE s.id IN (:ids)"));
+        reader.setParameterValues(Map.of("address", "서울%"));
+        reader.setPageSize(PAGE_SIZE);
+        reader.afterPropertiesSet();
+
+        // when:
+        final PersistenceUnitUtil persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        final List<Long> readIds = new ArrayList<>();
+        reader.open(new ExecutionContext());
+        try {
+            Store store;
+            while ((store = reader.read()) != null) {
+                readIds.add(store.getId());
+                // then: 다음 페이지 조회로 detach 되기 전에 확인한다
+                assertThat(persistenceUnitUtil.isLoaded(store, "products")).isTrue();
+                assertThat(persistenceUnitUtil.isLoaded(store, "employees")).isTrue();
+                assertThat(store.getProducts()).hasSize(2);
+                assertThat(store.getEmployees()).hasSize(1);
+            }
+        } finally {
+            reader.close();
+        }
+
+        // then:
+        assertThat(readIds).containsExactlyElementsOf(idsDescending);
+        assertThat(output).doesNotContain("HHH000104"); // 메모리 페이징 경고가 없다 (LIMIT 은 id 쿼리에서 DB 가 처리)
+        assertThat(output.getOut().toLowerCase()).contains("limit");
+    }
+}
@@ -0,0 +1,135 @@
+package seol.study.springbatch.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.QStore;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class QuerydslPagingItemBatchSizeReaderPrefetchTest {
+
+    private static final int STORE_COUNT = 23;
+    private static final int PAGE_SIZE = 5;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    private List<Long> storeIds;
+    private final List<EntityManager> openedEntityManagers = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final List<Store> stores = new ArrayList<>();
+        for (int i = 0; i < STORE_COUNT; i++) {
+            stores.add(new Store("서점" + i, "서울시 " + i));
+        }
+        storeIds = storeRepository.saveAll(stores).stream()
+                .map(Store::getId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("prefetch: 여러 페이지를 id 순서대로 빠짐없이, 중복 없이 읽는다")
+    void prefetchReadsEveryPageInOrder() throws Exception {
+        final QuerydslPagingItemBatchSizeReader<Store> reader = reader();
+
+        assertThat(readAll(reader)).containsExactlyElementsOf(storeIds);
+    }
+
+    @Test
+    @DisplayName("prefetch + keyset: 미리 조회하는 페이지도 직전 페이지의 마지막 id 이후부터 읽는다")
+    void prefetchWithKeysetReadsEveryPageInOrder() throws Exception {
+        final QuerydslPagingItemBatchSizeReader<Store> reader = reader();
+        reader.setKeysetPaging(QStore.store.id, Store::getId);
+
+        assertThat(readAll(reader)).containsExactlyElementsOf(storeIds);
+    }
+
+    @Test
+    @DisplayName("prefetch 중에 close 하면 prefetch 스레드를 종료하고 열었던 EntityManager 를 모두 닫는다")
+    void closeDuringPrefetch() throws Exception {
+        // given: 첫 페이지를 읽으면 다음 페이지 prefetch 가 시작된다
+        final QuerydslPagingItemBatchSizeReader<Store> reader = reader();
+        reader.setKeysetPaging(QStore.store.id, Store::getId);
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+        final Store first = reader.read();
+        final PagePrefetcher<Store> prefetcher = reader.prefetcher;
+
+        // when:
+        reader.close();
+
+        // then:
+        assertThat(first.getId()).isEqualTo(storeIds.get(0));
+        assertThat(prefetcher.isShutdown()).isTrue();
+        assertThat(openedEntityManagers).hasSizeGreaterThanOrEqualTo(2); // open 때 1개 + 페이지마다 1개
+        assertThat(openedEntityManagers).noneMatch(EntityManager::isOpen);
+    }
+
+    private QuerydslPagingItemBatchSizeReader<Store> reader() {
+        final QuerydslPagingItemBatchSizeReader<Store> reader = new QuerydslPagingItemBatchSizeReader<>(recordingEntityManagerFactory(), PAGE_SIZE,
+                queryFactory -> queryFactory.selectFrom(QStore.store).orderBy(QStore.store.id.asc()));
+        reader.setPrefetch(true);
+        return reader;
+    }
+
+    private List<Long> readAll(final QuerydslPagingItemBatchSizeReader<Store> reader) throws Exception {
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+        final List<Long> ids = new ArrayList<>();
+        try {
+            Store store;
+            while ((store = reader.read()) != null) {
+                ids.add(store.getId());
+            }
+        } finally {
+            reader.close();
+        }
+        assertThat(openedEntityManagers).noneMatch(EntityManager::isOpen);
+        return ids;
+    }
+
+    /**
+     * Reader 가 만든 EntityManager 를 기록한다.
+     */
+    private EntityManagerFactory recordingEntityManagerFactory() {
+        return (EntityManagerFactory) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{EntityManagerFactory.class},
+                (proxy, method, args) -> {
+                    try {
+                        final Object result = method.invoke(entityManagerFactory, args);
+                        if (result instanceof EntityManager) {
+                            openedEntityManagers.add((EntityManager) result);
+                        }
+                        return result;
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,61 @@
+package seol.study.springbatch.common;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.QStore;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class QuerydslPagingItemBatchSizeReaderReadOnlyTest {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("readOnly 이면 읽은 엔티티와 lazy 컬렉션이 read-only 로 로딩되고, 세션은 flush 하지 않는다")
+    void readOnlyReader() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final Store saved = new Store("서점", "서울시 강남구");
+        saved.addProduct(new Product("책", 10000L));
+        storeRepository.save(saved);
+
+        final QuerydslPagingItemBatchSizeReader<Store> reader = new QuerydslPagingItemBatchSizeReader<>(entityManagerFactory, 10,
+                queryFactory -> queryFactory.selectFrom(QStore.store));
+        reader.setReadOnly(true);
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        try {
+            // when:
+            final Store store = reader.read();
+
+            // then:
+            final Session session = reader.getEntityManager().unwrap(Session.class);
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+            assertThat(session.isReadOnly(store)).isTrue();
+            assertThat(session.isReadOnly(store.getProducts().get(0))).isTrue();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package seol.study.springbatch.common;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.QStore;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    HikariDataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    HikariDataSource replicaDataSource;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("readOnly 트랜잭션과 onReplica 안에서는 replica 풀, 그 외에는 primary 풀의 커넥션을 사용한다")
+    void routesToReplica() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        final TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        // when:
+        final int[] inReadOnly = readOnly.execute(status -> activeConnectionsInQuery());
+        final int[] inReadWrite = readWrite.execute(status -> activeConnectionsInQuery());
+        final int[] withoutTransaction = activeConnectionsInQuery();
+        final int[] onReplica = ReadWriteRoutingDataSource.onReplica(this::activeConnectionsInQuery);
+
+        // then: {primary, replica}
+        assertThat(inReadOnly).containsExactly(0, 1);
+        assertThat(inReadWrite).containsExactly(1, 0);
+        assertThat(withoutTransaction).containsExactly(1, 0);
+        assertThat(onReplica).containsExactly(0, 1);
+    }
+
+    @Test
+    @DisplayName("readOnly 트랜잭션 안에서는 라우팅 lookup key 가 replica 이다")
+    void readOnlyTransactionResolvesReplicaKey() {
+        final ReadWriteRoutingDataSource routingDataSource = (ReadWriteRoutingDataSource) ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        final TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        // when:
+        final Object inReadOnly = readOnly.execute(status -> routingDataSource.determineCurrentLookupKey());
+        final Object inReadWrite = readWrite.execute(status -> routingDataSource.determineCurrentLookupKey());
+
+        // then:
+        assertThat(inReadOnly).isEqualTo(ReadWriteRoutingDataSource.REPLICA);
+        assertThat(inReadWrite).isEqualTo(ReadWriteRoutingDataSource.PRIMARY);
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    @DisplayName("readFromReplica 인 Reader 는 페이지를 replica 풀의 커넥션으로 읽는다")
+    void readerReadsPageFromReplicaPool() throws Exception {
+        // given: 테스트의 두 풀은 같은 내장 H2 를 바라보므로, 어느 풀이 커넥션을 내줬는지로 확인한다
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final Store saved = new Store("서점", "서울시 강남구");
+        saved.addProduct(new Product("책", 10000L));
+        storeRepository.save(saved);
+
+        // when:
+        final List<List<Integer>> onReplica = activeConnectionsInPageRead(true);
+        final List<List<Integer>> onPrimary = activeConnectionsInPageRead(false);
+
+        // then: 페이지마다 {primary, replica}
+        assertThat(onReplica).containsExactly(List.of(0, 1));
+        assertThat(onPrimary).containsExactly(List.of(1, 0));
+    }
+
+    /**
+     * 페이지를 채우는 중(collectionPreloader)에 Reader 의 세션이 쓰는 커넥션을 기준으로 풀마다 사용 중인 커넥션 수를 센다.
+     */
+    private List<List<Integer>> activeConnectionsInPageRead(final boolean readFromReplica) throws Exception {
+        final List<List<Integer>> pages = new ArrayList<>();
+        final QuerydslPagingItemBatchSizeReader<Store> reader = new QuerydslPagingItemBatchSizeReader<>(entityManagerFactory, 10,
+                queryFactory -> queryFactory.selectFrom(QStore.store));
+        reader.setReadFromReplica(readFromReplica);
+        reader.setCollectionPreloader(new CollectionPreloader<>(Store.class, "products") {
+            @Override
+            public void preload(final EntityManager entityManager, final List<Store> items) {
+                pages.add(entityManager.unwrap(Session.class).doReturningWork(connection ->
+                        List.of(activeConnections(primaryDataSource), activeConnections(replicaDataSource))));
+                super.preload(entityManager, items);
+            }
+        });
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+        try {
+            while (reader.read() != null) {
+                // 페이지를 끝까지 읽는다
+            }
+        } finally {
+            reader.close();
+        }
+        return pages;
+    }
+
+    /**
+     * LazyConnectionDataSourceProxy 는 첫 쿼리에서 실제 커넥션을 얻으므로, 쿼리를 실행한 뒤 풀마다 사용 중인 커넥션 수를 센다.
+     */
+    private int[] activeConnectionsInQuery() {
+        return jdbcTemplate.execute((ConnectionCallback<int[]>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+            return new int[]{activeConnections(primaryDataSource), activeConnections(replicaDataSource)};
+        });
+    }
+
+    private static int activeConnections(final HikariDataSource pool) {
+        return pool.getHikariPoolMXBean() == null ? 0 : pool.getHikariPoolMXBean().getActiveConnections();
+    }
+}
@@ -0,0 +1,144 @@
+package seol.study.springbatch.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.QStore;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Step 중간에 실패시키고 같은 JobParameters 로 재시작했을 때, 재시작 상태(read.count, last.id)로 이어 읽어서 빠지거나 중복되는 Store 가 없는지 확인한다.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class ReaderRestartTest {
+
+    private static final int STORE_COUNT = 23;
+    private static final int CHUNK_SIZE = 4;
+    private static final int FAIL_AT = 11; // 3번째 chunk 에서 실패 -> 앞의 2 chunk(8건)만 commit
+
+    @Autowired
+    JobBuilderFactory jobBuilderFactory;
+    @Autowired
+    StepBuilderFactory stepBuilderFactory;
+    @Autowired
+    JobLauncher jobLauncher;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    private List<Long> storeIds;
+
+    @BeforeEach
+    void setUp() {
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final List<Store> stores = new ArrayList<>();
+        for (int i = 0; i < STORE_COUNT; i++) {
+            stores.add(new Store("서점" + i, "서울시 " + i));
+        }
+        storeIds = storeRepository.saveAll(stores).stream()
+                .map(Store::getId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("adaptivePageSize: 재시작하면 read.count 위치(rowOffset)부터 이어 읽는다")
+    void adaptivePageSizeRestart() throws Exception {
+        assertRestartReadsEveryStoreOnce("adaptivePageSizeRestart", () -> {
+            final QuerydslPagingItemBatchSizeReader<Store> reader = new QuerydslPagingItemBatchSizeReader<>(entityManagerFactory, 3,
+                    queryFactory -> queryFactory.selectFrom(QStore.store).orderBy(QStore.store.id.asc()));
+            reader.setAdaptivePageSize(2, 8, 1);
+            return reader;
+        });
+    }
+
+    @Test
+    @DisplayName("StatelessSession cursor: 재시작하면 read.count 만큼 건너뛰고 이어 읽는다")
+    void statelessCursorRestart() throws Exception {
+        assertRestartReadsEveryStoreOnce("statelessCursorRestart", () -> QuerydslCursorItemReader.stateless(entityManagerFactory, CHUNK_SIZE,
+                queryFactory -> queryFactory.selectFrom(QStore.store).orderBy(QStore.store.id.asc())));
+    }
+
+    @Test
+    @DisplayName("keysetRestart cursor: 재시작하면 마지막으로 commit 된 id 이후부터 cursor 를 다시 연다")
+    void keysetCursorRestart() throws Exception {
+        assertRestartReadsEveryStoreOnce("keysetCursorRestart", () -> {
+            final QuerydslCursorItemReader<Store> reader = new QuerydslCursorItemReader<>(entityManagerFactory, CHUNK_SIZE,
+                    queryFactory -> queryFactory.selectFrom(QStore.store));
+            reader.setKeysetRestart(QStore.store.id, Store::getId);
+            return reader;
+        });
+    }
+
+    /**
+     * 첫 실행은 FAIL_AT 번째 item 에서 실패하고, 재시작은 끝까지 간다. commit 된 chunk 의 id 만 모아서 전체 id 와 비교한다.
+     */
+    private void assertRestartReadsEveryStoreOnce(final String jobName, final Supplier<ItemReader<Store>> readerFactory) throws Exception {
+        final List<Long> written = Collections.synchronizedList(new ArrayList<>());
+        final AtomicBoolean failOnce = new AtomicBoolean(true);
+        final AtomicInteger processed = new AtomicInteger();
+        final ItemProcessor<Store, Long> processor = store -> {
+            if (processed.incrementAndGet() == FAIL_AT && failOnce.getAndSet(false)) {
+                throw new IllegalStateException("restart test");
+            }
+            return store.getId();
+        };
+        final JobParameters jobParameters = new JobParametersBuilder()
+                .addLong("run", System.nanoTime())
+                .toJobParameters();
+
+        // when:
+        final JobExecution failed = jobLauncher.run(job(jobName, readerFactory.get(), processor, written), jobParameters);
+        final List<Long> writtenBeforeRestart = new ArrayList<>(written);
+        final JobExecution restarted = jobLauncher.run(job(jobName, readerFactory.get(), processor, written), jobParameters);
+
+        // then:
+        assertThat(failed.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(writtenBeforeRestart).hasSize(FAIL_AT / CHUNK_SIZE * CHUNK_SIZE);
+        assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(written).doesNotHaveDuplicates();
+        assertThat(written).containsExactlyElementsOf(storeIds);
+    }
+
+    private Job job(final String jobName, final ItemReader<Store> reader, final ItemProcessor<Store, Long> processor, final List<Long> written) {
+        return jobBuilderFactory.get(jobName)
+                .start(stepBuilderFactory.get(jobName + "_step")
+                        .<Store, Long>chunk(CHUNK_SIZE)
+                        .reader(reader)
+                        .processor(processor)
+                        .writer(written::addAll)
+                        .build())
+                .build();
+    }
+}
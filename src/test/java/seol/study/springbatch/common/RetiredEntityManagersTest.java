@@ -0,0 +1,93 @@
+package seol.study.springbatch.common;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetiredEntityManagersTest {
+
+    @Test
+    @DisplayName("교체 전에 시작한 chunk 가 끝나야 이전 페이지의 EntityManager 를 닫는다")
+    void closesAfterChunkFinished() {
+        final RetiredEntityManagers retired = new RetiredEntityManagers();
+        final EntityManager previousPage = openEntityManager();
+
+        retired.chunkStarted();
+        retired.retire(previousPage);
+        verify(previousPage, never()).close();
+
+        retired.chunkFinished();
+        verify(previousPage, times(1)).close();
+        assertThat(retired.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("진행 중인 chunk 가 없으면(Step 밖에서 read) 바로 닫는다")
+    void closesImmediatelyWithoutChunk() {
+        final RetiredEntityManagers retired = new RetiredEntityManagers();
+        final EntityManager previousPage = openEntityManager();
+
+        retired.retire(previousPage);
+
+        verify(previousPage, times(1)).close();
+    }
+
+    @Test
+    @DisplayName("멀티 스레드 Step: 다른 스레드의 chunk 가 먼저 끝나도, 교체 전에 시작한 chunk 가 남아 있으면 닫지 않는다")
+    void waitsForOldestChunk() throws Exception {
+        final RetiredEntityManagers retired = new RetiredEntityManagers();
+        final EntityManager previousPage = openEntityManager();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            retired.chunkStarted(); // 이 스레드의 chunk 는 이전 페이지 item 을 들고 있다
+
+            final CountDownLatch otherChunkStarted = new CountDownLatch(1);
+            final CountDownLatch retiredLatch = new CountDownLatch(1);
+            final Future<?> otherThread = executor.submit(() -> {
+                retired.chunkStarted();
+                otherChunkStarted.countDown();
+                await(retiredLatch);
+                retired.chunkFinished();
+            });
+            await(otherChunkStarted);
+            retired.retire(previousPage);
+            retiredLatch.countDown();
+            otherThread.get(5, TimeUnit.SECONDS);
+
+            verify(previousPage, never()).close();
+
+            retired.chunkFinished();
+            verify(previousPage, times(1)).close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static EntityManager openEntityManager() {
+        final EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.isOpen()).thenReturn(true);
+        return entityManager;
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package seol.study.springbatch.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class StoreDataGeneratorTest {
+
+    @Autowired
+    StoreDataGenerator storeDataGenerator;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("같은 seed 면 parallelism/commitSize 가 달라도 같은 데이터를 만든다")
+    void sameSeedSameData() {
+        // given:
+        final StoreDataSpec.StoreDataSpecBuilder spec = StoreDataSpec.builder()
+                .storeCount(50)
+                .productsPerStore(3)
+                .employeesPerStore(2)
+                .distribution(StoreDataSpec.Distribution.PARETO)
+                .seed(42L);
+
+        // when:
+        final StoreDataGenerator.Result first = generate(spec.parallelism(4).commitSize(7).build());
+        final List<String> firstData = snapshot();
+        final StoreDataGenerator.Result second = generate(spec.parallelism(1).commitSize(500).build());
+        final List<String> secondData = snapshot();
+
+        // then:
+        assertThat(second).isEqualTo(first);
+        assertThat(firstData).hasSize(50);
+        assertThat(secondData).containsExactlyElementsOf(firstData);
+    }
+
+    @Test
+    @DisplayName("storeCount 가 음수이거나 parallelism/commitSize 가 0 이하면 생성하지 않는다")
+    void invalidSpec() {
+        assertThatThrownBy(() -> storeDataGenerator.generate(StoreDataSpec.builder().storeCount(-1).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> storeDataGenerator.generate(StoreDataSpec.builder().parallelism(0).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> storeDataGenerator.generate(StoreDataSpec.builder().commitSize(0).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private StoreDataGenerator.Result generate(final StoreDataSpec spec) {
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        return storeDataGenerator.generate(spec);
+    }
+
+    /**
+     * id 를 제외한 Store/Product/Employee 내용. (Store 이름 순)
+     */
+    private List<String> snapshot() {
+        return new TransactionTemplate(transactionManager).execute(status -> storeRepository.findAll().stream()
+                .map(store -> store.getName() + "|" + store.getAddress()
+                        + "|" + store.getProducts().stream().map(p -> p.getName() + ":" + p.getPrice()).collect(Collectors.joining(","))
+                        + "|" + store.getEmployees().stream().map(e -> e.getName() + ":" + e.getHireDate()).collect(Collectors.joining(",")))
+                .sorted()
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,78 @@
+package seol.study.springbatch.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.batch.test.StepScopeTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class StoreHistoryJdbcBatchItemWriterTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("chunk 마다 ceil(item 수 / batchSize) 개의 batch 를 보내고, 누적 수를 Step ExecutionContext 에 남긴다")
+    void publishesCountsToStepExecutionContext() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        final StoreHistoryJdbcBatchItemWriter writer = new StoreHistoryJdbcBatchItemWriter(entityManagerFactory, dataSource, BATCH_SIZE);
+        final StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        final ExecutionContext context = stepExecution.getExecutionContext();
+        final int[] chunkSizes = {25, 10, 7, 1};
+
+        // when & then:
+        long storeId = 1;
+        long statements = 0;
+        long batches = 0;
+        for (final int chunkSize : chunkSizes) {
+            final List<StoreHistory> chunk = histories(storeId, chunkSize);
+            storeId += chunkSize;
+            StepScopeTestUtils.doInStepScope(stepExecution, () -> {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> writer.write(chunk));
+                return null;
+            });
+
+            statements += chunkSize;
+            batches += (chunkSize + BATCH_SIZE - 1) / BATCH_SIZE;
+            assertThat(context.getLong(StoreHistoryJdbcBatchItemWriter.STATEMENT_COUNT_KEY)).isEqualTo(statements);
+            assertThat(context.getLong(StoreHistoryJdbcBatchItemWriter.BATCH_COUNT_KEY)).isEqualTo(batches);
+        }
+        assertThat(batches).isEqualTo(3 + 1 + 1 + 1);
+        assertThat(writer.getBatchCount()).isEqualTo(batches);
+        assertThat(storeHistoryRepository.count()).isEqualTo(statements);
+    }
+
+    private static List<StoreHistory> histories(final long fromStoreId, final int count) {
+        final List<StoreHistory> histories = new ArrayList<>(count);
+        for (long storeId = fromStoreId; storeId < fromStoreId + count; storeId++) {
+            histories.add(new StoreHistory(new StoreHistoryRow(storeId, "서점" + storeId, List.of("책"), List.of("직원")))
+                    .snapshotOn(LocalDate.of(2024, 1, 1)));
+        }
+        return histories;
+    }
+}
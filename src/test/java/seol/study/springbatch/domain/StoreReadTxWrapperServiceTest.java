@@ -0,0 +1,76 @@
+package seol.study.springbatch.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false"})
+class StoreReadTxWrapperServiceTest {
+
+    @Autowired
+    StoreReadTxWrapperService storeReadTxWrapperService;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("DB 집계 결과가 엔티티를 로딩해서 집계한 결과와 같다")
+    void aggregateMatchesEntityPath() {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+
+        final Store store1 = new Store("서점", "서울시 강남구");
+        store1.addProduct(new Product("책1_1", 10000L));
+        store1.addProduct(new Product("책1_2", 20000L));
+        store1.addEmployee(new Employee("직원1_1", LocalDate.now()));
+        store1.addEmployee(new Employee("직원1_2", LocalDate.now()));
+        storeRepository.save(store1);
+
+        final Store store2 = new Store("서점2", "서울시 마포구");
+        store2.addProduct(new Product("책2_1", 15000L));
+        storeRepository.save(store2);
+
+        // when:
+        final long productSum = storeReadTxWrapperService.find();
+        final StoreAggregate aggregate = storeRepository.aggregateProductSumAndEmployeeNames();
+        final StoreAggregate byEntities = storeReadTxWrapperService.findByEntities();
+
+        // then:
+        assertThat(productSum).isEqualTo(45000L);
+        assertThat(aggregate.productSum()).isEqualTo(byEntities.productSum());
+        assertThat(aggregate.employeeNames()).containsExactlyInAnyOrderElementsOf(byEntities.employeeNames());
+        assertThat(aggregate.employeeNames()).containsExactly("직원1_1", "직원1_2");
+    }
+
+    @Test
+    @DisplayName("커서로 window 마다 컬렉션을 초기화해서 집계해도 DB 집계와 합계가 같다")
+    void streamingMatchesAggregate() {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        for (int i = 1; i <= 3; i++) {
+            final Store store = new Store("서점" + i, "서울시 강남구");
+            store.addProduct(new Product("책" + i + "_1", 10000L * i));
+            store.addProduct(new Product("책" + i + "_2", 1000L * i));
+            store.addEmployee(new Employee("직원" + i, LocalDate.now()));
+            storeRepository.save(store);
+        }
+
+        // when: fetchSize 2 -> window 2개 (2 + 1)
+        final long productSum = storeReadTxWrapperService.find();
+        final long streamingSum = storeReadTxWrapperService.findStreaming(2);
+
+        // then:
+        assertThat(productSum).isEqualTo(66000L);
+        assertThat(streamingSum).isEqualTo(productSum);
+    }
+}
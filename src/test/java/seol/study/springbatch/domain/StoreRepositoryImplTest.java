@@ -0,0 +1,78 @@
+package seol.study.springbatch.domain;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "spring.batch.job.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+class StoreRepositoryImplTest {
+
+    private static final int STORE_COUNT = 1005;
+    private static final int SLICES = 2; // 1000 + 5
+    private static final int COLLECTIONS = 2; // products, employees
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("findAllWithProductsAndEmployees: 1000 개 id 묶음마다 컬렉션 수만큼 쿼리하고, 트랜잭션이 끝난 뒤에도 컬렉션이 초기화되어 있다")
+    void findAllWithProductsAndEmployees() {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final List<Store> saved = new ArrayList<>();
+        long products = 0;
+        long employees = 0;
+        for (int i = 0; i < STORE_COUNT; i++) {
+            final Store store = new Store("서점" + i, "서울시 " + i);
+            for (int j = 0; j <= i % 3; j++) {
+                store.addProduct(new Product("책" + i + "-" + j, 10000L));
+                products++;
+            }
+            for (int j = 0; j <= i % 2; j++) {
+                store.addEmployee(new Employee("직원" + i + "-" + j, LocalDate.now()));
+                employees++;
+            }
+            saved.add(store);
+        }
+        storeRepository.saveAll(saved);
+
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when: 트랜잭션 밖에서 호출하므로 반환된 Store 는 detach 되어 있다
+        final List<Store> stores = storeRepository.findAllWithProductsAndEmployees();
+
+        // then:
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1L + (long) COLLECTIONS * SLICES);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(STORE_COUNT + products + employees);
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo((long) COLLECTIONS * STORE_COUNT);
+
+        assertThat(stores).hasSize(STORE_COUNT);
+        assertThat(stores).allSatisfy(store -> {
+            assertThat(Hibernate.isInitialized(store.getProducts())).isTrue();
+            assertThat(Hibernate.isInitialized(store.getEmployees())).isTrue();
+        });
+        assertThat(stores.stream().mapToLong(store -> store.getProducts().size()).sum()).isEqualTo(products);
+        assertThat(stores.stream().mapToLong(store -> store.getEmployees().size()).sum()).isEqualTo(employees);
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+    }
+}
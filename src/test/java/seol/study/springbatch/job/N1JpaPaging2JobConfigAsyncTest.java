@@ -0,0 +1,61 @@
+package seol.study.springbatch.job;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.StoreHistory;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=n1JpaPagingJob2", "chunkSize=10", "gridSize=1", "asyncThreadCount=4"})
+class N1JpaPaging2JobConfigAsyncTest {
+
+    @Autowired
+    JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("AsyncItemProcessor 로 처리해도 Store 마다 lazy 컬렉션이 채워진 StoreHistory 가 하나씩 저장된다")
+    void n1JpaPagingJob2WithAsyncProcessor() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+
+        final JobParameters jobParameters = new JobParametersBuilder()
+                .addString("address", "서울")
+                .addLong("storeCount", 100L)
+                .addLong("seed", 7L)
+                .toJobParameters();
+        // when:
+        final JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+        // then:
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+
+        final long seoulStores = storeRepository.findAll().stream()
+                .filter(store -> store.getAddress().startsWith("서울"))
+                .count();
+        final List<StoreHistory> histories = storeHistoryRepository.findAll();
+        assertThat(histories).hasSize((int) seoulStores);
+        assertThat(histories)
+                .allSatisfy(history -> {
+                    assertThat(history.getProductNames()).isNotEmpty();
+                    assertThat(history.getEmployeeNames()).isNotEmpty();
+                });
+    }
+}
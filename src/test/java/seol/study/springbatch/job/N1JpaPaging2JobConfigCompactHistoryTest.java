@@ -0,0 +1,63 @@
+package seol.study.springbatch.job;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.StoreHistory;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=n1JpaPagingJob2", "chunkSize=10", "compactHistory=true"})
+class N1JpaPaging2JobConfigCompactHistoryTest {
+
+    @Autowired
+    JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("compactHistory 면 이름 목록이 압축 포맷으로 저장되고 다시 풀어서 읽을 수 있다")
+    void n1JpaPagingJob2WithCompactHistory() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+
+        final JobParameters jobParameters = new JobParametersBuilder()
+                .addString("address", "서울")
+                .addLong("storeCount", 100L)
+                .addLong("seed", 7L)
+                .toJobParameters();
+        // when:
+        final JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+        // then:
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+
+        final long seoulStores = storeRepository.findAll().stream()
+                .filter(store -> store.getAddress().startsWith("서울"))
+                .count();
+        final List<StoreHistory> histories = storeHistoryRepository.findAll();
+        assertThat(histories).hasSize((int) seoulStores);
+        assertThat(histories)
+                .allSatisfy(history -> {
+                    assertThat(history.isCompact()).isTrue();
+                    assertThat(history.getProductNames()).isNull();
+                    assertThat(history.getProductNameList()).hasSize(2);
+                    assertThat(history.getEmployeeNameList()).hasSize(2);
+                });
+    }
+}
@@ -0,0 +1,132 @@
+package seol.study.springbatch.job;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.batch.test.StepScopeTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistory;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=n1JpaPagingJob2", "chunkSize=3", "gridSize=1", "threadCount=8"})
+class N1JpaPaging2JobConfigMultiThreadTest {
+
+    @Autowired
+    JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Test
+    @DisplayName("8개 스레드로 실행해도 Store 마다 StoreHistory 가 하나씩 저장된다")
+    void n1JpaPagingJob2WithEightThreads() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+
+        // initData 에서 StoreDataGenerator 로 생성한다
+        final JobParameters jobParameters = new JobParametersBuilder()
+                .addString("address", "서울")
+                .addLong("storeCount", 200L)
+                .addLong("productsPerStore", 3L)
+                .addLong("employeesPerStore", 2L)
+                .addString("distribution", "PARETO")
+                .addLong("seed", 42L)
+                .toJobParameters();
+        // when:
+        final JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+        // then:
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+
+        final long seoulStores = storeRepository.findAll().stream()
+                .filter(store -> store.getAddress().startsWith("서울"))
+                .count();
+        final List<StoreHistory> histories = storeHistoryRepository.findAll();
+        assertThat(histories).hasSize((int) seoulStores);
+        assertThat(histories)
+                .extracting(StoreHistory::getStoreName)
+                .doesNotHaveDuplicates();
+        assertThat(histories)
+                .allSatisfy(history -> assertThat(history.getProductNames()).isNotEmpty());
+    }
+
+    @Test
+    @DisplayName("processor 는 Reader 의 lock 을 잡지 않으므로 여러 chunk 스레드에서 동시에 실행된다")
+    void processorRunsOnSeveralThreadsAtOnce() throws Exception {
+        // given: 모든 스레드가 processor 안에 들어와야 통과하는 barrier. 처리가 직렬화되면 timeout 으로 실패한다
+        final int threads = 4;
+        final CyclicBarrier allProcessing = new CyclicBarrier(threads);
+        final ItemProcessor<Store, StoreHistory> processor = StepScopeTestUtils.doInStepScope(
+                MetaDataInstanceFactory.createStepExecution(),
+                () -> AopTestUtils.getUltimateTargetObject(applicationContext.getBean(N1JpaPaging2JobConfig.JOB_NAME + "_processor")));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // when:
+            final List<Future<StoreHistory>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final Store store = new Store("서점" + i, "서울시 " + i);
+                store.addProduct(new Product("책" + i, 10000L) {
+                    @Override
+                    public String getName() {
+                        await(allProcessing);
+                        return super.getName();
+                    }
+                });
+                futures.add(executor.submit(() -> processor.process(store)));
+            }
+
+            // then:
+            final List<StoreHistory> histories = new ArrayList<>();
+            for (Future<StoreHistory> future : futures) {
+                histories.add(future.get(10, TimeUnit.SECONDS));
+            }
+            assertThat(histories)
+                    .extracting(StoreHistory::getProductNames)
+                    .containsExactly("책0", "책1", "책2", "책3");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(final CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (final BrokenBarrierException | TimeoutException e) {
+            throw new IllegalStateException("processor 가 동시에 실행되지 않았다", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package seol.study.springbatch.job;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.Employee;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.QStore;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistory;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreHistoryRow;
+import seol.study.springbatch.domain.StoreHistoryRowItemReader;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=n1JpaPagingJob2", "chunkSize=10", "projectionReader=true"})
+class N1JpaPaging2JobConfigProjectionReaderTest {
+
+    @Autowired
+    JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+
+    @Test
+    @DisplayName("projectionReader 면 StoreHistoryRow 로 읽어서 Store 마다 이름 목록이 채워진 StoreHistory 를 저장한다")
+    void n1JpaPagingJob2WithProjectionReader() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+
+        final JobParameters jobParameters = new JobParametersBuilder()
+                .addString("address", "서울")
+                .addLong("storeCount", 100L)
+                .addLong("seed", 7L)
+                .toJobParameters();
+        // when:
+        final JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+        // then:
+        assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+
+        final long seoulStores = storeRepository.findAll().stream()
+                .filter(store -> store.getAddress().startsWith("서울"))
+                .count();
+        final List<StoreHistory> histories = storeHistoryRepository.findAll();
+        assertThat(histories).hasSize((int) seoulStores);
+        assertThat(histories)
+                .allSatisfy(history -> {
+                    assertThat(history.getProductNames()).isNotEmpty();
+                    assertThat(history.getEmployeeNames()).isNotEmpty();
+                });
+    }
+
+    @Test
+    @DisplayName("transacted=false 여도 projection 은 detach 하지 않고 읽는다")
+    void rowReaderWithoutTransaction() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final Store saved = new Store("서점", "서울시 강남구");
+        saved.addProduct(new Product("책", 10000L));
+        saved.addEmployee(new Employee("직원", LocalDate.now()));
+        storeRepository.save(saved);
+
+        final StoreHistoryRowItemReader reader = new StoreHistoryRowItemReader(entityManagerFactory, 10, QStore.store.address.like("서울%"));
+        reader.setTransacted(false);
+        reader.open(new ExecutionContext());
+
+        // when:
+        final List<StoreHistoryRow> rows = new ArrayList<>();
+        try {
+            StoreHistoryRow row;
+            while ((row = reader.read()) != null) {
+                rows.add(row);
+            }
+        } finally {
+            reader.close();
+        }
+
+        // then:
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).productNames()).containsExactly("책");
+        assertThat(rows.get(0).employeeNames()).containsExactly("직원");
+    }
+}
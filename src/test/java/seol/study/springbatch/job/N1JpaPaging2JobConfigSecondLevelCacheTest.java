@@ -0,0 +1,63 @@
+package seol.study.springbatch.job;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=n1JpaPagingJob2", "chunkSize=10", "secondLevelCache=true"})
+class N1JpaPaging2JobConfigSecondLevelCacheTest {
+
+    @Autowired
+    JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("secondLevelCache 면 Store 와 컬렉션이 2차 캐시에 저장되고 두번째 실행부터 캐시에서 읽는다")
+    void n1JpaPagingJob2WithSecondLevelCache() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        final JobExecution first = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+                .addString("address", "서울")
+                .addLong("storeCount", 20L)
+                .toJobParameters());
+        assertThat(first.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        final long hitsBefore = statistics.getDomainDataRegionStatistics(Store.PRODUCTS_CACHE_REGION).getHitCount();
+
+        // when: 데이터는 더 만들지 않고 다시 실행
+        final JobParameters jobParameters = new JobParametersBuilder()
+                .addString("address", "서울")
+                .addLong("storeCount", 0L)
+                .toJobParameters();
+        final JobExecution second = jobLauncherTestUtils.launchJob(jobParameters);
+
+        // then:
+        assertThat(second.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(statistics.getDomainDataRegionStatistics(Store.CACHE_REGION).getPutCount()).isPositive();
+        assertThat(statistics.getDomainDataRegionStatistics(Store.PRODUCTS_CACHE_REGION).getHitCount()).isGreaterThan(hitsBefore);
+    }
+}
@@ -1,5 +1,6 @@
 package seol.study.springbatch.job;
 
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
@@ -9,6 +10,7 @@ import org.springframework.batch.test.JobLauncherTestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
+import seol.study.springbatch.domain.StoreHistoryRepository;
 import seol.study.springbatch.domain.StoreRepository;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -21,6 +23,8 @@ class N1JpaPaging2JobConfigTest {
     JobLauncherTestUtils jobLauncherTestUtils;
     @Autowired
     StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
 
     @Test
     void n1JpaPagingJob2() throws Exception {
@@ -37,4 +41,32 @@ class N1JpaPaging2JobConfigTest {
         assertThat(jobExecution.getStatus() == BatchStatus.COMPLETED).isTrue();
 
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("같은 snapshotDate 로 다시 실행하면 StoreHistory 를 덮어쓰고 중복 row 를 만들지 않는다")
+    void rerunWithSameSnapshotDate() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+
+        final JobExecution first = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+                .addString("address", "서울")
+                .addString("snapshotDate", "2024-01-01")
+                .addLong("storeCount", 30L)
+                .toJobParameters());
+        assertThat(first.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        final long historyCount = storeHistoryRepository.count();
+
+        // when: 데이터는 더 만들지 않고 같은 기준일로 다시 실행
+        final JobExecution second = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+                .addString("address", "서울")
+                .addString("snapshotDate", "2024-01-01")
+                .addLong("storeCount", 0L)
+                .toJobParameters());
+
+        // then:
+        assertThat(second.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(historyCount).isPositive();
+        assertThat(storeHistoryRepository.count()).isEqualTo(historyCount);
+    }
+}
@@ -0,0 +1,94 @@
+package seol.study.springbatch.job;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import seol.study.springbatch.domain.Employee;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistory;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "chunkSize=10", "failAfter=0"})
+class StoreBackupBatchIncrementalTest {
+
+    private static final LocalDate FIRST_SNAPSHOT = LocalDate.of(2024, 1, 1);
+    private static final LocalDate SECOND_SNAPSHOT = LocalDate.of(2024, 1, 2);
+
+    @Autowired
+    JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("incremental: 두번째 실행은 첫 실행 이후 바뀐 Store 와 lastModifiedAt 이 없는 Store 만 백업한다")
+    void secondRunBacksUpOnlyChangedStores() throws Exception {
+        // given:
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        final Store unchanged = storeRepository.save(store("서점1"));
+        final Store changed = storeRepository.save(store("서점2"));
+        final Store legacy = storeRepository.save(store("서점3"));
+        final JobExecution first = jobLauncherTestUtils.launchJob(incrementalParameters(FIRST_SNAPSHOT));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                storeRepository.findById(changed.getId()).orElseThrow().addProduct(new Product("새 책", 30000L)));
+        // 컬럼이 생기기 전에 저장된 row
+        jdbcTemplate.update("UPDATE store SET last_modified_at = NULL WHERE id = ?", legacy.getId());
+
+        // when:
+        final JobExecution second = jobLauncherTestUtils.launchJob(incrementalParameters(SECOND_SNAPSHOT));
+
+        // then:
+        assertThat(first.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(second.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+
+        final List<StoreHistory> histories = storeHistoryRepository.findAll();
+        assertThat(histories)
+                .filteredOn(history -> history.getSnapshotDate().equals(FIRST_SNAPSHOT))
+                .extracting(StoreHistory::getStoreId)
+                .containsExactlyInAnyOrder(unchanged.getId(), changed.getId(), legacy.getId());
+        assertThat(histories)
+                .filteredOn(history -> history.getSnapshotDate().equals(SECOND_SNAPSHOT))
+                .extracting(StoreHistory::getStoreId)
+                .containsExactlyInAnyOrder(changed.getId(), legacy.getId());
+    }
+
+    private static Store store(final String name) {
+        final Store store = new Store(name, "서울시 강남구");
+        store.addProduct(new Product(name + "_책", 10000L));
+        store.addEmployee(new Employee(name + "_직원", LocalDate.now()));
+        return store;
+    }
+
+    private static JobParameters incrementalParameters(final LocalDate snapshotDate) {
+        return new JobParametersBuilder()
+                .addString("address", "서울")
+                .addString("incremental", "true")
+                .addString("snapshotDate", snapshotDate.toString())
+                .toJobParameters();
+    }
+}
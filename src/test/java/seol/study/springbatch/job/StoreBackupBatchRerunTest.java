@@ -0,0 +1,130 @@
+package seol.study.springbatch.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import seol.study.springbatch.common.JpaInsertOnlyItemWriter;
+import seol.study.springbatch.domain.Employee;
+import seol.study.springbatch.domain.Product;
+import seol.study.springbatch.domain.Store;
+import seol.study.springbatch.domain.StoreHistoryRepository;
+import seol.study.springbatch.domain.StoreRepository;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * chunk 몇개가 커밋된 뒤 실패한 실행을 다시 돌려도 (store_id, snapshot_date) 마다 StoreHistory 가 하나만 남는지 확인한다.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {"job.name=storeBackupBatch", "chunkSize=2"})
+class StoreBackupBatchRerunTest {
+
+    private static final int STORE_COUNT = 5;
+    private static final int FAIL_AFTER = 4; // chunk 2개(4건) 커밋 후 세번째 chunk 에서 실패
+    private static final LocalDate SNAPSHOT = LocalDate.of(2024, 1, 1);
+    private static final String ROWS_PER_KEY_SQL =
+            "SELECT COUNT(*) FROM (SELECT store_id, snapshot_date FROM store_history GROUP BY store_id, snapshot_date HAVING COUNT(*) > 1) duplicated";
+
+    @Autowired
+    JobLauncherTestUtils jobLauncherTestUtils;
+    @Autowired
+    StoreBackupBatchConfig storeBackupBatchConfig;
+    @Autowired
+    StoreRepository storeRepository;
+    @Autowired
+    StoreHistoryRepository storeHistoryRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        storeHistoryRepository.deleteAll();
+        storeRepository.deleteAll();
+        for (int i = 1; i <= STORE_COUNT; i++) {
+            storeRepository.save(store("서점" + i));
+        }
+        // failAfter 는 JVM 전체 누적이라 다른 테스트가 올려둔 값을 지운다
+        ((AtomicInteger) ReflectionTestUtils.getField(StoreBackupBatchConfig.class, "count")).set(0);
+        storeBackupBatchConfig.setFailAfter(FAIL_AFTER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storeBackupBatchConfig.setFailAfter(2);
+        storeBackupBatchConfig.setWriteMode(null);
+    }
+
+    @Test
+    @DisplayName("JDBC upsert: 실패한 실행을 재시작하고, 같은 기준일로 다시 백업해도 Store 마다 한 row 만 남는다")
+    void restartAndRerunKeepOneRowPerSnapshot() throws Exception {
+        // given:
+        final JobExecution failed = jobLauncherTestUtils.launchJob(parameters("1"));
+        assertThat(failed.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(storeHistoryRepository.count()).isEqualTo(FAIL_AFTER);
+        storeBackupBatchConfig.setFailAfter(0);
+
+        // when:
+        final JobExecution restarted = jobLauncherTestUtils.launchJob(parameters("1"));
+        final JobExecution rerun = jobLauncherTestUtils.launchJob(parameters("2"));
+
+        // then:
+        assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(restarted.getJobInstance().getId()).isEqualTo(failed.getJobInstance().getId());
+        assertThat(restarted.getStepExecutions().iterator().next().getWriteCount()).isEqualTo(STORE_COUNT - FAIL_AFTER);
+        assertThat(rerun.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertOneRowPerStore();
+    }
+
+    @Test
+    @DisplayName("insert-only: 재시작은 커밋된 chunk 다음부터라 성공하고, 같은 기준일의 새 실행은 unique key 로 실패한다")
+    void insertOnlyRestartsButCannotOverwrite() throws Exception {
+        // given:
+        storeBackupBatchConfig.setWriteMode(JpaInsertOnlyItemWriter.Mode.PERSIST);
+        final JobExecution failed = jobLauncherTestUtils.launchJob(parameters("1"));
+        assertThat(failed.getStatus()).isEqualTo(BatchStatus.FAILED);
+        storeBackupBatchConfig.setFailAfter(0);
+
+        // when:
+        final JobExecution restarted = jobLauncherTestUtils.launchJob(parameters("1"));
+        final JobExecution rerun = jobLauncherTestUtils.launchJob(parameters("2"));
+
+        // then:
+        assertThat(restarted.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(rerun.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertOneRowPerStore();
+    }
+
+    private void assertOneRowPerStore() {
+        assertThat(storeHistoryRepository.count()).isEqualTo(STORE_COUNT);
+        assertThat(jdbcTemplate.queryForObject(ROWS_PER_KEY_SQL, Long.class)).isZero();
+    }
+
+    private static JobParameters parameters(final String run) {
+        return new JobParametersBuilder()
+                .addString("address", "서울")
+                .addString("snapshotDate", SNAPSHOT.toString())
+                .addString("run", run)
+                .toJobParameters();
+    }
+
+    private static Store store(final String name) {
+        final Store store = new Store(name, "서울시 강남구");
+        store.addProduct(new Product(name + "_책", 10000L));
+        store.addEmployee(new Employee(name + "_직원", LocalDate.now()));
+        return store;
+    }
+}